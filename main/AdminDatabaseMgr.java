@@ -1,10 +1,5 @@
 
 
-import java.io.*;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.*;
 
 /**
@@ -26,10 +21,6 @@ public class AdminDatabaseMgr extends DatabaseManager{
     */
     final static String FILEOFALLADMINS = "ADMIN.csv"; 
     /** 
-    * temporary file created to transfer data
-    */
-    final static String TEMPFILE = "TEMP.csv"; 
-    /** 
     * columns of admin csv
     */
     private static String[] columns = { "Last name", "First name", "Username", "Gender"};
@@ -44,6 +35,7 @@ public class AdminDatabaseMgr extends DatabaseManager{
     */
     public AdminDatabaseMgr(){
         super(FILEOFALLADMINS, col);
+        getTable().createIndex(col.indexOf("Username"));
         admins = getAllAdmins();
     }
 
@@ -76,25 +68,14 @@ public class AdminDatabaseMgr extends DatabaseManager{
     /**
    * This method reads admin data row by row 
    * @return an list of admin objects
-   * @exception IOException can not find file
    */
     private static List<Admin> readAdminsFromCSV(){ 
         admins = new ArrayList<>(); 
-        Path pathToFile = Paths.get(FILEOFALLADMINS); 
-        try(BufferedReader br = Files.newBufferedReader(pathToFile, StandardCharsets.US_ASCII)){
-
-            String line = br.readLine(); 
-            line = br.readLine();
-            while (line != null) { 
-                String[] attributes = line.split(",",-1); 
-                Admin a = createAdmin(attributes); 
-                admins.add(a); 
-                line = br.readLine(); 
-            } 
+        List<String[]> rows = StorageEngine.of(FILEOFALLADMINS).rows();
+        for (int i = 1; i < rows.size(); i++) { // skip the header
+            admins.add(createAdmin(rows.get(i))); 
         } 
-        catch (IOException ioe) { 
-            ioe.printStackTrace(); 
-        } return admins; 
+        return admins; 
     } 
     /**
    * This method creates admin objects
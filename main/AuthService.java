@@ -0,0 +1,89 @@
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+* <h1>AuthService</h1>
+* Runs logins (Login.verifyLogin, one PBKDF2 derivation each) on a dedicated pool of THREADS workers, one per core
+* by default, so a burst of logins when a registration window opens neither takes the threads of the enrollment path
+* nor starts more derivations at once than there are cores.
+* <p>
+* Logins wait in a queue of QUEUE_SIZE. When the queue is full a login is rejected at once, its future fails with a
+* RejectedExecutionException and the user can try again, instead of every login getting slower the longer the queue.
+* A login whose future is cancelled while it waits is not run.
+* <p>
+* settings can be changed with the system properties stars.auth.threads and stars.auth.queue
+* e.g. boolean verified = AuthService.verifyLogin("DON001", password, "student").get();
+* @version 1.0
+* @since   2020-25-11
+*/
+public class AuthService {
+    /**
+    * number of logins verified at the same time
+    */
+    static final int THREADS = Math.max(1, Integer.getInteger("stars.auth.threads", Runtime.getRuntime().availableProcessors()));
+    /**
+    * number of logins that can wait for a worker
+    */
+    static final int QUEUE_SIZE = Math.max(1, Integer.getInteger("stars.auth.queue", 256));
+
+    private static final AtomicInteger workerCount = new AtomicInteger();
+    /**
+    * workers of the logins, daemon threads so they do not keep the program running
+    */
+    private static final ThreadPoolExecutor workers = new ThreadPoolExecutor(THREADS, THREADS, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<Runnable>(QUEUE_SIZE), r -> {
+                Thread t = new Thread(r, "auth-worker-" + workerCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }, new ThreadPoolExecutor.AbortPolicy());
+    /**
+    * number of logins rejected because the queue was full
+    */
+    private static final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * queues a login for a worker
+     * @param userName String to identify user
+     * @param userPass String password of user
+     * @param userDomain String either student or admin
+     * @return future of Login.verifyLogin, failed with a RejectedExecutionException if the queue is full
+     */
+    public static CompletableFuture<Boolean> verifyLogin(String userName, String userPass, String userDomain) {
+        CompletableFuture<Boolean> result = new CompletableFuture<Boolean>();
+        try {
+            workers.execute(() -> {
+                if (result.isDone()) {
+                    return; // cancelled while it waited
+                }
+                try {
+                    result.complete(Login.verifyLogin(userName, userPass, userDomain));
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * @return number of logins that wait for a worker
+     */
+    public static int queued() {
+        return workers.getQueue().size();
+    }
+
+    /**
+     * @return number of logins rejected because the queue was full
+     */
+    public static long rejected() {
+        return rejected.get();
+    }
+}
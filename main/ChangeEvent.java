@@ -0,0 +1,198 @@
+/**
+* <h1>ChangeEvent</h1>
+* A change to the persistent data, published through the ChangeFeed after the change was made.
+* <p>
+* Every kind of change is its own subclass with typed getters, eg. EnrollmentAdded.getMatricNo().
+* toString() gives one line of text (kind, time, fields) as written by the file sink of the ChangeFeed.
+* e.g. EnrollmentAdded,1606287600000,U2000001C,CZ2002,10002
+* @version 1.0
+* @since   2020-25-11
+*/
+public abstract class ChangeEvent {
+    /**
+    * time the change was made, in milliseconds since the epoch
+    */
+    private final long time = System.currentTimeMillis();
+
+    /**
+     * @return time the change was made, in milliseconds since the epoch
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * @return values of the event in the order they are written
+     */
+    protected abstract Object[] fields();
+
+    /**
+     * @return the event as one line eg. "VacancyChanged,1606287600000,CZ2002,10002,9,10"
+     */
+    @Override
+    public String toString() {
+        StringBuilder line = new StringBuilder(getClass().getSimpleName()).append(',').append(time);
+        for (Object field : fields()) {
+            line.append(',').append(field);
+        }
+        return line.toString();
+    }
+
+    /**
+    * <h1>EnrollmentAdded</h1>
+    * a student was registered in a course index
+    */
+    public static final class EnrollmentAdded extends ChangeEvent {
+        private final String matricNo;
+        private final String courseID;
+        private final int courseIndex;
+
+        /**
+         * @param matricNo matriculation number of the student
+         * @param courseID course ID eg. "CZ2002"
+         * @param courseIndex course index eg. 10002
+         */
+        public EnrollmentAdded(String matricNo, String courseID, int courseIndex) {
+            this.matricNo = matricNo;
+            this.courseID = courseID;
+            this.courseIndex = courseIndex;
+        }
+
+        public String getMatricNo() {
+            return matricNo;
+        }
+
+        public String getCourseID() {
+            return courseID;
+        }
+
+        public int getCourseIndex() {
+            return courseIndex;
+        }
+
+        @Override
+        protected Object[] fields() {
+            return new Object[] { matricNo, courseID, courseIndex };
+        }
+    }
+
+    /**
+    * <h1>EnrollmentDropped</h1>
+    * a student left a course index
+    */
+    public static final class EnrollmentDropped extends ChangeEvent {
+        private final String matricNo;
+        private final String courseID;
+        private final int courseIndex;
+
+        /**
+         * @param matricNo matriculation number of the student
+         * @param courseID course ID eg. "CZ2002"
+         * @param courseIndex course index eg. 10002
+         */
+        public EnrollmentDropped(String matricNo, String courseID, int courseIndex) {
+            this.matricNo = matricNo;
+            this.courseID = courseID;
+            this.courseIndex = courseIndex;
+        }
+
+        public String getMatricNo() {
+            return matricNo;
+        }
+
+        public String getCourseID() {
+            return courseID;
+        }
+
+        public int getCourseIndex() {
+            return courseIndex;
+        }
+
+        @Override
+        protected Object[] fields() {
+            return new Object[] { matricNo, courseID, courseIndex };
+        }
+    }
+
+    /**
+    * <h1>VacancyChanged</h1>
+    * the vacancy or the size of a course index changed
+    */
+    public static final class VacancyChanged extends ChangeEvent {
+        private final String courseID;
+        private final int courseIndex;
+        private final int vacancy;
+        private final int courseSize;
+
+        /**
+         * @param courseID course ID eg. "CZ2002"
+         * @param courseIndex course index eg. 10002
+         * @param vacancy new vacancy
+         * @param courseSize new course size
+         */
+        public VacancyChanged(String courseID, int courseIndex, int vacancy, int courseSize) {
+            this.courseID = courseID;
+            this.courseIndex = courseIndex;
+            this.vacancy = vacancy;
+            this.courseSize = courseSize;
+        }
+
+        public String getCourseID() {
+            return courseID;
+        }
+
+        public int getCourseIndex() {
+            return courseIndex;
+        }
+
+        public int getVacancy() {
+            return vacancy;
+        }
+
+        public int getCourseSize() {
+            return courseSize;
+        }
+
+        @Override
+        protected Object[] fields() {
+            return new Object[] { courseID, courseIndex, vacancy, courseSize };
+        }
+    }
+
+    /**
+    * <h1>AccessPeriodChanged</h1>
+    * the access period of every student of a course of study changed
+    */
+    public static final class AccessPeriodChanged extends ChangeEvent {
+        private final String courseOfStudy;
+        private final String[] period;
+
+        /**
+         * @param courseOfStudy course of study eg. "DSAI"
+         * @param period Start date, Start time, End date, End time eg. {"November 20 2020", "09:30", "November 27 2020", "18:00"}
+         */
+        public AccessPeriodChanged(String courseOfStudy, String[] period) {
+            this.courseOfStudy = courseOfStudy;
+            this.period = period.clone();
+        }
+
+        public String getCourseOfStudy() {
+            return courseOfStudy;
+        }
+
+        /**
+         * @return Start date, Start time, End date, End time
+         */
+        public String[] getPeriod() {
+            return period.clone();
+        }
+
+        @Override
+        protected Object[] fields() {
+            Object[] fields = new Object[period.length + 1];
+            fields[0] = courseOfStudy;
+            System.arraycopy(period, 0, fields, 1, period.length);
+            return fields;
+        }
+    }
+}
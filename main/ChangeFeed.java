@@ -0,0 +1,253 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+* <h1>ChangeFeed</h1>
+* In-process stream of the ChangeEvents published by the database managers, so other systems can follow
+* enrollments and vacancies as they change instead of re-reading the csv files.
+* <p>
+* Every subscriber gets its own bounded ring buffer. Publishing never blocks and never waits for a subscriber:
+* an event that does not fit into the buffer of a slow subscriber is dropped for that subscriber only and
+* counted in Subscription.dropped(), so the subscriber knows it has to read the tables again.
+* Any thread may publish, each Subscription is read by one thread.
+* <p>
+* If the system property stars.cdc.file is set every event is also appended to that file as one line,
+* the buffer size can be changed with the system property stars.cdc.capacity
+* e.g. ChangeFeed.Subscription sub = ChangeFeed.subscribe(); ... ChangeEvent e = sub.poll();
+* @version 1.0
+* @since   2020-25-11
+*/
+public class ChangeFeed {
+    /**
+    * creates logger instance of change feed to log exceptions and other errors
+    */
+    private static Logger logger = Logger.getLogger(ChangeFeed.class.getName());
+    /**
+    * number of events a subscriber can fall behind, rounded up to a power of two
+    */
+    static final int CAPACITY = Integer.getInteger("stars.cdc.capacity", 1024);
+    /**
+    * file the events are appended to, null for no file
+    */
+    static final String SINK_FILE = System.getProperty("stars.cdc.file");
+    /**
+    * how often (in milliseconds) the file sink writes the events it received
+    */
+    private static final long SINK_INTERVAL_MS = 200L;
+    /**
+    * buffers of the subscribers
+    */
+    private static final List<Subscription> subscribers = new CopyOnWriteArrayList<Subscription>();
+
+    static {
+        if (SINK_FILE != null) {
+            startFileSink(SINK_FILE);
+        }
+    }
+
+    /**
+     * passes an event to every subscriber, never blocks
+     * @param event change that was made
+     */
+    public static void publish(ChangeEvent event) {
+        for (Subscription subscriber : subscribers) {
+            subscriber.offer(event);
+        }
+    }
+
+    /**
+     * subscribes to every event published from now on
+     * @return Subscription with a buffer of CAPACITY events
+     */
+    public static Subscription subscribe() {
+        return subscribe(CAPACITY);
+    }
+
+    /**
+     * subscribes to every event published from now on
+     * @param capacity number of events the subscriber can fall behind
+     * @return Subscription to poll the events from
+     */
+    public static Subscription subscribe(int capacity) {
+        Subscription subscription = new Subscription(capacity);
+        subscribers.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * appends every event published from now on to a file, one line per event
+     * the file is written by a background thread every SINK_INTERVAL_MS, and once more when the program exits
+     * @param fileName file to append to eg. "STARS.changes"
+     * @return Subscription of the file sink, close() stops it
+     */
+    public static Subscription startFileSink(String fileName) {
+        Subscription subscription = subscribe();
+        FileSink sink = new FileSink(fileName, subscription);
+        ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "change-feed-sink");
+            t.setDaemon(true);
+            return t;
+        });
+        writer.scheduleWithFixedDelay(sink, SINK_INTERVAL_MS, SINK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            writer.shutdown();
+            try {
+                writer.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            sink.run();
+        }, "change-feed-shutdown"));
+        return subscription;
+    }
+
+    /**
+    * <h1>Subscription</h1>
+    * bounded ring buffer of the events of one subscriber
+    * <p>
+    * publishers claim a slot by moving tail forward, the subscriber empties slots by moving head forward.
+    * A slot is only claimed while tail is less than CAPACITY ahead of head, otherwise the event is dropped.
+    */
+    public static final class Subscription {
+        private final AtomicReferenceArray<ChangeEvent> slots;
+        private final int mask;
+        /**
+        * next slot to claim for publishing
+        */
+        private final AtomicLong tail = new AtomicLong();
+        /**
+        * next slot to read, only written by the subscriber
+        */
+        private volatile long head = 0;
+        /**
+        * number of events that did not fit
+        */
+        private final AtomicLong dropped = new AtomicLong();
+
+        /**
+         * @param capacity number of events the buffer holds, rounded up to a power of two
+         */
+        private Subscription(int capacity) {
+            int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+            slots = new AtomicReferenceArray<ChangeEvent>(size);
+            mask = size - 1;
+        }
+
+        /**
+         * puts an event into the buffer, or drops it if the buffer is full
+         * @param event event to put
+         * @return true if the event was put, false if it was dropped
+         */
+        private boolean offer(ChangeEvent event) {
+            long t;
+            do {
+                t = tail.get();
+                if (t - head > mask) {
+                    dropped.incrementAndGet();
+                    return false;
+                }
+            } while (!tail.compareAndSet(t, t + 1));
+            slots.set((int) (t & mask), event);
+            return true;
+        }
+
+        /**
+         * takes the oldest event, only one thread may poll a Subscription
+         * @return the oldest event, null if there is none
+         */
+        public ChangeEvent poll() {
+            long h = head;
+            int slot = (int) (h & mask);
+            ChangeEvent event = slots.get(slot);
+            if (event == null) {
+                return null; // empty, or the publisher that claimed the slot has not put its event yet
+            }
+            slots.set(slot, null);
+            head = h + 1;
+            return event;
+        }
+
+        /**
+         * takes every event that is in the buffer
+         * @param to list the events are added to, oldest first
+         * @return number of events taken
+         */
+        public int drainTo(List<ChangeEvent> to) {
+            int taken = 0;
+            ChangeEvent event;
+            while ((event = poll()) != null) {
+                to.add(event);
+                taken++;
+            }
+            return taken;
+        }
+
+        /**
+         * @return number of events that were dropped because the buffer was full
+         */
+        public long dropped() {
+            return dropped.get();
+        }
+
+        /**
+         * stops receiving events
+         */
+        public void close() {
+            subscribers.remove(this);
+        }
+    }
+
+    /**
+    * appends the events of a subscription to a file
+    */
+    private static final class FileSink implements Runnable {
+        private final String fileName;
+        private final Subscription subscription;
+        /**
+        * dropped events that were already written as an Overflow line
+        */
+        private long reportedDropped = 0;
+
+        private FileSink(String fileName, Subscription subscription) {
+            this.fileName = fileName;
+            this.subscription = subscription;
+        }
+
+        /**
+         * writes the events received since the last run
+         */
+        @Override
+        public synchronized void run() {
+            List<ChangeEvent> events = new ArrayList<ChangeEvent>();
+            subscription.drainTo(events);
+            long dropped = subscription.dropped();
+            if (events.isEmpty() && dropped == reportedDropped) {
+                return;
+            }
+            try (BufferedWriter bw = new BufferedWriter(new FileWriter(fileName, true))) {
+                for (ChangeEvent event : events) {
+                    bw.write(event.toString());
+                    bw.newLine();
+                }
+                if (dropped > reportedDropped) { // the events after these were lost, readers of the file have to resync from the tables
+                    bw.write("Overflow," + System.currentTimeMillis() + "," + (dropped - reportedDropped));
+                    bw.newLine();
+                    reportedDropped = dropped;
+                }
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Could not write " + fileName + " (ChangeFeed -> FileSink)", e);
+            }
+        }
+    }
+}
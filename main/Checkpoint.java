@@ -0,0 +1,293 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32C;
+
+/**
+* <h1>Checkpoint</h1>
+* Sidecar file of a table (eg. STUDENT.csv.ckpt) with the length and row count of the file and a CRC32C of every block,
+* written whenever CsvTable writes the table.
+* <p>
+* Before a table is loaded its file is checked against the checkpoint, the blocks are checked in parallel on the
+* bytes of the file without parsing any row. The file is read, not mapped, so no mapping keeps it locked on Windows
+* when it is replaced right after (eg. the temporary file that DurableFile moves over the table). A file that does not match is repaired if the cause is known:
+* <ul>
+* <li>the temporary file of an interrupted rewrite matches the checkpoint: it is moved over the file</li>
+* <li>bytes were appended after the checkpointed length: they are cut off</li>
+* <li>a fixed-width file was interrupted while cells were written in place and every record still ends where it should:
+* the checkpoint is written again for the file as it is</li>
+* </ul>
+* Otherwise the table is refused with an IllegalStateException that names the blocks that do not match,
+* instead of loading shifted or half-written rows. A table without a checkpoint is loaded and gets one.
+* <p>
+* the system property stars.checkpoint is "repair" (default), "refuse" to never repair or "off" to not check at all,
+* the block size can be changed with the system property stars.checkpoint.block
+* @version 1.0
+* @since   2020-25-11
+*/
+public class Checkpoint {
+    /**
+    * creates logger instance of checkpoint to log exceptions and other errors
+    */
+    private static Logger logger = Logger.getLogger(Checkpoint.class.getName());
+    /**
+    * suffix of the sidecar file
+    */
+    static final String SUFFIX = ".ckpt";
+    /**
+    * "repair", "refuse" or "off"
+    */
+    static final String MODE = System.getProperty("stars.checkpoint", "repair");
+    /**
+    * number of bytes covered by one CRC
+    */
+    static final int BLOCK_BYTES = Math.max(Integer.getInteger("stars.checkpoint.block", 64 * 1024), 1);
+
+    /**
+     * writes the checkpoint of a table, errors are only logged and leave the table without a checkpoint
+     * @param fileName file path of the table
+     * @param written file path of the content to checkpoint, the table itself or the temporary file that replaces it
+     */
+    static void save(String fileName, String written) {
+        String ckpt = fileName + SUFFIX;
+        try {
+            Stamp stamp = Stamp.of(written, Long.MAX_VALUE, BLOCK_BYTES);
+            DurableFile.replace(ckpt, ckpt + ".tmp", out -> {
+                BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(out));
+                bw.write(stamp.length + "," + stamp.rows + "," + stamp.blockSize);
+                bw.newLine();
+                for (long crc : stamp.crcs) {
+                    bw.write(Long.toHexString(crc));
+                    bw.newLine();
+                }
+                bw.flush();
+            });
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not write " + ckpt + " (Checkpoint -> save)", e);
+            new File(ckpt).delete(); // an old checkpoint would refuse the new file
+        }
+    }
+
+    /**
+     * checks a table against its checkpoint before it is loaded, and repairs it if the cause of a mismatch is known
+     * @param fileName file path of the table
+     * @param tempName file path of the temporary file the table is rewritten through
+     * @exception IllegalStateException if the table does not match its checkpoint and could not be repaired
+     */
+    static void verify(String fileName, String tempName) {
+        if (MODE.equals("off")) {
+            return;
+        }
+        Stamp expected = load(fileName);
+        if (expected == null) {
+            if (new File(fileName).exists()) {
+                save(fileName, fileName);
+            }
+            return;
+        }
+        try {
+            long length = new File(fileName).length();
+            Stamp actual = Stamp.of(fileName, expected.length, expected.blockSize);
+            List<Integer> bad = actual.mismatches(expected);
+            if (bad.isEmpty() && length == expected.length) {
+                return;
+            }
+            if (MODE.equals("repair")) {
+                if (new File(tempName).exists() && Stamp.of(tempName, Long.MAX_VALUE, expected.blockSize).mismatches(expected).isEmpty()) {
+                    DurableFile.move(tempName, fileName);
+                    logger.log(Level.WARNING, "Finished the interrupted rewrite of " + fileName + " from " + tempName + " (Checkpoint -> verify)");
+                    return;
+                }
+                if (bad.isEmpty() && length > expected.length) {
+                    truncate(fileName, expected.length);
+                    logger.log(Level.WARNING, "Cut " + (length - expected.length) + " bytes appended to " + fileName + " (Checkpoint -> verify)");
+                    return;
+                }
+                if (FixedWidthFormat.isFixedWidth(fileName) && length == expected.length && recordsIntact(fileName, expected.rows)) {
+                    save(fileName, fileName);
+                    logger.log(Level.WARNING, "Accepted the cells written in place into " + fileName + " blocks " + bad + " (Checkpoint -> verify)");
+                    return;
+                }
+            }
+            throw new IllegalStateException(fileName + " does not match " + fileName + SUFFIX + ": length " + length + " instead of "
+                    + expected.length + ", rows " + actual.rows + " instead of " + expected.rows + ", changed blocks " + bad);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not check " + fileName + " against " + fileName + SUFFIX, e);
+        }
+    }
+
+    /**
+     * reads the checkpoint of a table
+     * @param fileName file path of the table
+     * @return Stamp of the checkpoint, null if there is none or it cannot be read
+     */
+    private static Stamp load(String fileName) {
+        File ckpt = new File(fileName + SUFFIX);
+        if (!ckpt.exists()) {
+            return null;
+        }
+        try (BufferedReader fileReader = new BufferedReader(new FileReader(ckpt))) {
+            String[] header = fileReader.readLine().split(",");
+            List<Long> crcs = new ArrayList<Long>();
+            String line;
+            while ((line = fileReader.readLine()) != null) {
+                crcs.add(Long.parseLong(line, 16));
+            }
+            long[] values = new long[crcs.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = crcs.get(i);
+            }
+            return new Stamp(Long.parseLong(header[0]), Long.parseLong(header[1]), Integer.parseInt(header[2]), values);
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "Could not read " + ckpt + ", " + fileName + " is loaded unchecked (Checkpoint -> load)", e);
+            return null;
+        }
+    }
+
+    /**
+     * cuts a file to a length and forces it
+     * @param fileName file path of the file
+     * @param length new length
+     * @exception IOException if the file could not be cut
+     */
+    private static void truncate(String fileName, long length) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.WRITE)) {
+            channel.truncate(length);
+            channel.force(true);
+        }
+    }
+
+    /**
+     * checks that every record of a fixed-width file ends with a line break where the layout says, which holds
+     * for a file whose cells were only partly written in place
+     * @param fileName file path of the fixed-width file
+     * @param rows number of records the file should have
+     * @return true if the file has rows records of the length of its header, each ending in a line break
+     * @exception IOException if the file could not be read
+     */
+    private static boolean recordsIntact(String fileName, long rows) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0 || size > Integer.MAX_VALUE) {
+                return false;
+            }
+            ByteBuffer buf = read(channel, (int) size);
+            int recordLength = 0;
+            while (recordLength < size && buf.get(recordLength) != '\n') {
+                recordLength++;
+            }
+            recordLength++;
+            if (size % recordLength != 0 || size / recordLength != rows) {
+                return false;
+            }
+            int length = recordLength;
+            return IntStream.range(0, (int) rows).parallel().allMatch(i -> buf.get((i + 1) * length - 1) == '\n');
+        }
+    }
+
+    /**
+     * reads the start of a file into a heap buffer
+     * @param channel open channel of the file
+     * @param size number of bytes to read
+     * @return the bytes, from 0 to limit
+     * @exception IOException if the file could not be read
+     */
+    private static ByteBuffer read(FileChannel channel, int size) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        while (buf.hasRemaining() && channel.read(buf, buf.position()) != -1) {
+            // read until the buffer is full or the file ended early
+        }
+        buf.flip();
+        return buf;
+    }
+
+    /**
+    * length, row count and block CRCs of a file
+    */
+    private static final class Stamp {
+        private final long length;
+        private final long rows;
+        private final int blockSize;
+        private final long[] crcs;
+
+        private Stamp(long length, long rows, int blockSize, long[] crcs) {
+            this.length = length;
+            this.rows = rows;
+            this.blockSize = blockSize;
+            this.crcs = crcs;
+        }
+
+        /**
+         * computes the stamp of the start of a file, the blocks in parallel
+         * @param fileName file path of the file
+         * @param limit number of bytes to cover at most
+         * @param blockSize number of bytes covered by one CRC
+         * @return Stamp of the first min(limit, size) bytes
+         * @exception IOException if the file could not be read
+         */
+        private static Stamp of(String fileName, long limit, int blockSize) throws IOException {
+            try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+                long size = Math.min(channel.size(), limit);
+                if (size > Integer.MAX_VALUE) {
+                    throw new IOException(fileName + " is too large to read");
+                }
+                ByteBuffer buf = read(channel, (int) size);
+                int length = (int) size;
+                int blocks = (int) ((size + blockSize - 1) / blockSize);
+                long[] crcs = new long[blocks];
+                long[] lineBreaks = new long[blocks];
+                IntStream.range(0, blocks).parallel().forEach(b -> {
+                    int from = b * blockSize;
+                    ByteBuffer block = buf.slice(from, Math.min(blockSize, length - from));
+                    long breaks = 0;
+                    for (int i = 0; i < block.limit(); i++) {
+                        if (block.get(i) == '\n') {
+                            breaks++;
+                        }
+                    }
+                    CRC32C crc = new CRC32C();
+                    crc.update(block);
+                    crcs[b] = crc.getValue();
+                    lineBreaks[b] = breaks;
+                });
+                long rows = 0;
+                for (long breaks : lineBreaks) {
+                    rows += breaks;
+                }
+                if (length > 0 && buf.get(length - 1) != '\n') {
+                    rows++; // last line without a line break
+                }
+                return new Stamp(size, rows, blockSize, crcs);
+            }
+        }
+
+        /**
+         * @param expected stamp of the checkpoint
+         * @return blocks that differ from the checkpoint, empty if the file matches it
+         */
+        private List<Integer> mismatches(Stamp expected) {
+            List<Integer> bad = new ArrayList<Integer>();
+            for (int b = 0; b < Math.max(crcs.length, expected.crcs.length); b++) {
+                if (b >= crcs.length || b >= expected.crcs.length || crcs[b] != expected.crcs[b]) {
+                    bad.add(b);
+                }
+            }
+            if (bad.isEmpty() && (length != expected.length || rows != expected.rows)) {
+                bad.add(crcs.length - 1);
+            }
+            return bad;
+        }
+    }
+}
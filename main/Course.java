@@ -67,9 +67,9 @@ public class Course {
 	 */
 	// from csv
 	public Course(String courseID, String school, int courseIndex, int vacancy, int courseSize, List<String> sessions, String courseType, int AU){
-		this.courseID = courseID;
+		this.courseID = StringPool.canon(courseID);
 		this.courseIndex = courseIndex;
-		this.courseType = courseType;
+		this.courseType = StringPool.canon(courseType);
 		this.setSchool(school);
 		this.setAU(AU);
 		this.courseSize = courseSize;
@@ -79,6 +79,30 @@ public class Course {
 		this.setVacancy(vacancy);
 	}
 	
+	/**
+	 * Creates a Course whose lessons are already built, used when loading a Snapshot
+	 * @param courseID 		The course ID of this course (e.g. PH1900)
+	 * @param school 		The school the course is under (e.g. SPMS)
+	 * @param courseIndex	The course index of this course (e.g. 10113)
+	 * @param vacancy		The vacancy of the course
+	 * @param courseSize	The max capacity of the course
+	 * @param lessons		Lesson objects of the course timetable
+	 * @param courseType	The course type of the course (e.g. UE/GERPE/CORE etc.)
+	 * @param AU			The number of AUs this module is
+	 */
+	public Course(String courseID, String school, int courseIndex, int vacancy, int courseSize, Lesson[] lessons, String courseType, int AU){
+		this.courseID = StringPool.canon(courseID);
+		this.courseIndex = courseIndex;
+		this.courseType = StringPool.canon(courseType);
+		this.setSchool(school);
+		this.setAU(AU);
+		this.courseSize = courseSize;
+		this.registeredStudents = new ArrayList<Student>(courseSize);
+		this.wl = new WaitList(this, courseSize);
+		this.timetable = new CourseTimeTable(this, new ArrayList<Lesson>(Arrays.asList(lessons)));
+		this.setVacancy(vacancy);
+	}
+
 	/**
 	 * Overloading another constructor to create Course
 	 * Similar to the previous, just that when Admin creates a new course,
@@ -94,8 +118,8 @@ public class Course {
 // from admin
 	public Course(String courseID, String school, String courseType, int AU, int courseIndex, 
 	int courseSize, String[] lessonList) {
-		this.courseID = courseID;
-		this.courseType = courseType;
+		this.courseID = StringPool.canon(courseID);
+		this.courseType = StringPool.canon(courseType);
 		this.setSchool(school);
 		this.courseSize = courseSize;
 		this.setAU(AU);
@@ -123,7 +147,7 @@ public class Course {
 	 */
 	public void setSchool(String school) {
 
-		this.school = school;
+		this.school = StringPool.canon(school);
 	}
 
 
@@ -222,17 +246,26 @@ public class Course {
 	 * Adding a Student s into the list of registered Students
 	 * @param s Student to be added
 	 */
-	public void addStudent(Student s){
+	public synchronized void addStudent(Student s){
 		registeredStudents.add(s);
 		
 	}
 
 	
+	/** 
+	 * Adding Students into the list of registered Students, in the order of the list
+	 * @param students Students to be added
+	 */
+	public synchronized void addStudents(List<Student> students){
+		registeredStudents.addAll(students);
+	}
+
+	
 	/** 
 	 * Removing Student s from the list of registered Students
 	 * @param s Student to be removed
 	 */
-	public void removeStudent(Student s){
+	public synchronized void removeStudent(Student s){
 		registeredStudents.remove(s);
 		
 	}
@@ -278,7 +311,7 @@ public class Course {
 	 * @param courseID The courseID to be set
 	 */
 	public void setCourseID(String courseID) {
-		this.courseID = courseID;
+		this.courseID = StringPool.canon(courseID);
 	}
 
 	
@@ -306,7 +339,7 @@ public class Course {
 	 * @param s1	Student taking the current course
 	 * @param s2	Student who wants to take the course
 	 */
-	public void swapStudents(Student s1, Student s2){
+	public synchronized void swapStudents(Student s1, Student s2){
 		registeredStudents.remove(s1);
 		registeredStudents.add(s2);
 	}
@@ -334,7 +367,7 @@ public class Course {
 	 * @param courseType The course type to be set
 	 */
 	public void setCourseType(String courseType) {
-		this.courseType = courseType;
+		this.courseType = StringPool.canon(courseType);
 	}
 
 	
@@ -3,17 +3,6 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.io.PrintWriter;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 
 /**
  * <h1>CourseDatabaseManager</h1>
@@ -51,10 +40,6 @@ public class CourseDatabaseManager extends DatabaseManager{ // CRUD -> Responsib
      * individual numbers of the indexes everytime and potentially mixing up the order
      */
     private static List<String> col = Arrays.asList(columns);
-    /**
-     * The filepath for a temporary csv file we create when updating the main file
-     */
-    final static String TEMPFILE = "temp.csv";
     /**
      * CourseDatabaseManager object which we first initialise to null
      */
@@ -66,6 +51,7 @@ public class CourseDatabaseManager extends DatabaseManager{ // CRUD -> Responsib
      */
     public CourseDatabaseManager(){
         super(FILEOFALLCOURSES, col);
+        getTable().createIndex(col.indexOf("CourseID"), col.indexOf("Index"));
         courses = getAllCoursesFromCSV();
         if(cdm == null){
             cdm = this;
@@ -87,39 +73,35 @@ public class CourseDatabaseManager extends DatabaseManager{ // CRUD -> Responsib
 
     
     /** 
-     * Looks through the List of Courses, and returns the Course object with the input courseID and courseIndex
+     * Looks up the Course object with the input courseID and courseIndex in the CourseIndexMap of CourseManager,
+     * the same Course objects the students are registered in
      * @param courseID      The course ID of the Course
      * @param courseIndex   The course index of the Course
      * @return Course object
      */
     public static Course retrieveCourse(String courseID, int courseIndex) {
-        courses = getAllCoursesFromCSV();
-        for (Course c : courses) {
-            if(c.getCourseID().equals(courseID)){
-                if(c.getCourseIndex() == courseIndex){
-                    return c;
-                }
-                
-            }
-        }System.out.println("Course does not exist in the database");
-        return null;
+        Course c = CourseManager.getCourseMap().get(courseID, courseIndex);
+        if(c == null){
+            System.out.println("Course does not exist in the database");
+        }
+        return c;
 
     }
 
     
     /** 
-     * Gets the List of all Course objects from readCourseFromCSV
+     * Gets the List of all Course objects from the Snapshot if it is current, otherwise from readCourseFromCSV
      * @return List<Course> List oc Course objects
      */
     private static List<Course> getAllCoursesFromCSV(){
-        
-        courses = readCourseFromCSV(FILEOFALLCOURSES);
+        List<Course> fromSnapshot = Snapshot.courses();
+        courses = fromSnapshot != null ? fromSnapshot : readCourseFromCSV(FILEOFALLCOURSES);
         return courses;
     }
 
      
      /** 
-      * The actual function that reads through the csv file, 
+      * The actual function that reads through the rows of the csv table, 
       * calls createCourse method to create Course objects, then and adds into the List of Courses
       * @param fileName         The filepath of the csv we're reading (COURSE.csv)
       * @return List<Course> List of Course objects
@@ -127,25 +109,14 @@ public class CourseDatabaseManager extends DatabaseManager{ // CRUD -> Responsib
      // https://www.java67.com/2015/08/how-to-load-data-from-csv-file-in-java.html#ixzz6ePfLvsWI
     private static List<Course> readCourseFromCSV(String fileName){ 
         List<Course> courses = new ArrayList<>(); 
-        Path pathToFile = Paths.get(fileName); // create an instance of BufferedReader // using try with resource, Java 7 feature to close resources
-        try(BufferedReader br = Files.newBufferedReader(pathToFile, StandardCharsets.US_ASCII)){
-
-             
-            // read the first line from the text file 
-            String line = br.readLine(); // loop until all lines are read 
-            line = br.readLine();
-            while (line != null) { 
-                String[] attributes = line.split(",",-1); 
-                Course c = createCourse(attributes); 
-                if(c!=null){
-                    courses.add(c); // read next line before looping // if end of file reached, line would be null 
-                    
-                }line = br.readLine(); 
-            } 
+        List<String[]> rows = StorageEngine.of(fileName).rows();
+        for (int i = 1; i < rows.size(); i++) { // skip the header
+            Course c = createCourse(rows.get(i)); 
+            if(c!=null){
+                courses.add(c);
+            }
         } 
-        catch (IOException ioe) { 
-            ioe.printStackTrace(); 
-        } return courses; 
+        return courses; 
     } 
     
     
@@ -180,11 +151,21 @@ public class CourseDatabaseManager extends DatabaseManager{ // CRUD -> Responsib
     
     /** 
      * Updates the vacancy of Course c in the csv file, gets the info from Course c
+     * publishes a VacancyChanged event
      * @param c Course that had a change in vacancy and needs to be reflected in csv
      */
     public void updateVacancy(Course c){
-        String vac_over_size = c.getVacancy() +"/"+c.getCourseSize();
-        replaceInformationCSV(col.indexOf("Vac"), c.getCourseID(), Integer.toString(c.getCourseIndex()), vac_over_size);
+        int vacancy = c.getVacancy();
+        int courseSize = c.getCourseSize();
+        String vac_over_size = vacancy +"/"+courseSize;
+        int[] key = {col.indexOf("CourseID"), col.indexOf("Index")};
+        int changed = getTable().update(key, c.getCourseID() + "," + c.getCourseIndex(), tokens -> {
+            tokens[col.indexOf("Vac")] = vac_over_size;
+            return tokens;
+        });
+        if (changed > 0) {
+            ChangeFeed.publish(new ChangeEvent.VacancyChanged(c.getCourseID(), c.getCourseIndex(), vacancy, courseSize));
+        }
     }
 
     
@@ -217,6 +198,7 @@ public class CourseDatabaseManager extends DatabaseManager{ // CRUD -> Responsib
     
     /** 
      * When Admin updates a course, the changes in the details will be updated in the csv
+     * publishes a VacancyChanged event for the updated index
      * @param courseID          Course ID of the course
      * @param school            School the course is under
      * @param oldCourseIndex    The original course index of the course
@@ -229,76 +211,37 @@ public class CourseDatabaseManager extends DatabaseManager{ // CRUD -> Responsib
     public void updateCourse(String courseID, String school,  int oldCourseIndex, int newCourseIndex, String courseSize, 
                             String[] newLesson, String courseType, int AU){
 
-        BufferedReader fileReader = null;
-        PrintWriter pw = null;
-
-        File oldFile = new File(FILEOFALLCOURSES);
-        File newFile = new File(TEMPFILE);
         String courseIndex = Integer.toString(oldCourseIndex);
-        String line;
-        StringBuffer sb = new StringBuffer();
-        for(int i = 0; i < newLesson.length-1; i++) {
-            sb.append(newLesson[i] + ",");
-        }
-        sb.append(newLesson[newLesson.length-1]);
-        String str = sb.toString();
-
-        try(FileWriter fw = new FileWriter(TEMPFILE, true); //append to file
-            BufferedWriter bw = new BufferedWriter(fw);){
-            
-            pw = new PrintWriter(bw);
-            fileReader = new BufferedReader(new FileReader(FILEOFALLCOURSES));
-            while ((line = fileReader.readLine()) != null) {
-                String[] tokens = line.split(",",-1);
-                StringBuilder newLine = new StringBuilder();
-                if(!tokens[col.indexOf("CourseID")].equals(courseID)){ //if this is not the course to be updated
-                    for(int i=0; i<tokens.length; i++){
-                        newLine.append(tokens[i]);
-                        newLine.append(",");
-                    }
-                    pw.println(newLine);
-                }else{
-                    if(tokens[col.indexOf("Index")].equals(courseIndex)){
-                        List<String> list = Arrays.asList(courseID, school, Integer.toString(newCourseIndex),
-                                                        courseSize, str, courseType, Integer.toString(AU));
-                        String replace = String.join(",", list);
-                        pw.println(replace);
-                    }else{
-                        List<String> list = Arrays.asList(courseID, school);
-                        String replace = String.join(",", list);
-                        newLine.append(replace + ",");
-                        for(int i=2; i<col.indexOf("Type"); i++){
-                            newLine.append(tokens[i]);
-                            newLine.append(",");
-                        }
-                        newLine.append(courseType+","+AU+",");
-                        pw.println(newLine);
-                    }
-                    
-                }
-            }
-
-            
+        int idColumn = col.indexOf("CourseID");
+        int indexColumn = col.indexOf("Index");
+        int typeColumn = col.indexOf("Type");
+        String[] updated = new String[col.size()];
+        updated[idColumn] = courseID;
+        updated[col.indexOf("School")] = school;
+        updated[indexColumn] = Integer.toString(newCourseIndex);
+        updated[col.indexOf("Vac")] = courseSize;
+        for(int i = 0; i < 3; i++){
+            updated[col.indexOf("Session1") + i] = i < newLesson.length ? newLesson[i] : "";
         }
-        catch(Exception e){
-            System.out.println("Error updating course file(CourseDatabaseManager)");
-            e.printStackTrace();
-        } finally{
-            if(pw !=null){
-                pw.flush();
-                pw.close();
-            }
-            File name = new File(FILEOFALLCOURSES); //variable to store path
-            oldFile.delete();
-            newFile.renameTo(name);
-            try {
-                if(fileReader!=null){
-                    fileReader.close();
-                }
-            } catch (IOException e) {
-                System.out.println("error encountered at CourseDatabaseManager when trying to update course information");
-                e.printStackTrace();
+        updated[typeColumn] = courseType;
+        updated[col.indexOf("AU")] = Integer.toString(AU);
+
+        boolean[] updatedIndex = {false};
+        getTable().update(idColumn, courseID, tokens -> {
+            if(tokens[indexColumn].equals(courseIndex)){ // the index that was updated
+                updatedIndex[0] = true;
+                return updated.clone();
             }
+            tokens = Arrays.copyOf(tokens, Math.max(tokens.length, col.size()));
+            tokens[col.indexOf("School")] = school; // other indexes of the same course share school, type and AU
+            tokens[typeColumn] = courseType;
+            tokens[col.indexOf("AU")] = Integer.toString(AU);
+            return tokens;
+        });
+        String[] vacOverSize = courseSize.split("/");
+        if(updatedIndex[0] && courseSize.matches("\\s*\\d+\\s*/\\s*\\d+\\s*")){
+            ChangeFeed.publish(new ChangeEvent.VacancyChanged(courseID, newCourseIndex,
+                    Integer.parseInt(vacOverSize[0].trim()), Integer.parseInt(vacOverSize[1].trim())));
         }
     }
 
@@ -0,0 +1,181 @@
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+* <h1>CourseIndexMap</h1>
+* Course objects by course index, in an open-addressing table of primitive int keys, so a lookup of a
+* course by ID and index is O(1) without boxing the index or scanning the List of courses.
+* <p>
+* Indexes are unique within a course ID but not across course IDs (eg. CR1106 and PH2110 both have 12003).
+* The first course of an index gets the slot, a course whose index already belongs to another course ID is kept in a
+* small overflow map by "ID,index" instead. indexesOf(courseID) gives the indexes of every course ID.
+* <p>
+* Lookups never lock: the table is replaced as a whole when a course is added or changes its index,
+* which only happens when an admin edits the courses.
+* e.g. Course c = courseMap.get("CZ2002", 10002);
+* @version 1.0
+* @since   2020-25-11
+*/
+public class CourseIndexMap {
+    /**
+    * current table, replaced on every change
+    */
+    private volatile Slots slots;
+
+    /**
+     * creates the map of a List of courses, the first one wins if a course is listed twice
+     * @param courses every Course object
+     */
+    public CourseIndexMap(Collection<Course> courses) {
+        slots = new Slots(courses.toArray(new Course[0]));
+    }
+
+    /**
+     * @param courseID course ID eg. "CZ2002"
+     * @param courseIndex course index eg. 10002
+     * @return the course, null if there is none
+     */
+    public Course get(String courseID, int courseIndex) {
+        return slots.get(courseID, courseIndex);
+    }
+
+    /**
+     * @param courseID course ID eg. "CZ2002"
+     * @return indexes of the course ID in the order they were added, empty if there is no such course
+     */
+    public int[] indexesOf(String courseID) {
+        int[] indexes = slots.indexesByID.get(courseID);
+        return indexes == null ? new int[0] : indexes.clone();
+    }
+
+    /**
+     * @return number of courses in the map
+     */
+    public int size() {
+        return slots.courses.length;
+    }
+
+    /**
+     * adds a course that was created
+     * @param c new Course
+     */
+    public synchronized void put(Course c) {
+        Course[] courses = Arrays.copyOf(slots.courses, slots.courses.length + 1);
+        courses[courses.length - 1] = c;
+        slots = new Slots(courses);
+    }
+
+    /**
+     * moves a course to the slot of its new index, after Course.setCourseIndex
+     * @param c Course whose index changed
+     */
+    public synchronized void reindex(Course c) {
+        slots = new Slots(slots.courses);
+    }
+
+    /**
+     * @param courseID course ID
+     * @param courseIndex course index
+     * @return key of a course in the overflow map eg. "CZ2002,10002"
+     */
+    private static String key(String courseID, int courseIndex) {
+        return courseID + "," + courseIndex;
+    }
+
+    /**
+    * one immutable version of the table
+    */
+    private static final class Slots {
+        /**
+        * every course, in the order they were added
+        */
+        private final Course[] courses;
+        /**
+        * course index of every used slot
+        */
+        private final int[] keys;
+        /**
+        * course of every slot, null for a free slot
+        */
+        private final Course[] values;
+        private final int mask;
+        /**
+        * courses whose index is already in a slot of another course ID, by key()
+        */
+        private final Map<String, Course> overflow = new HashMap<String, Course>();
+        /**
+        * indexes of every course ID
+        */
+        private final Map<String, int[]> indexesByID = new HashMap<String, int[]>();
+
+        /**
+         * builds the table at most half full, so probe sequences stay short
+         * @param courses every Course object
+         */
+        private Slots(Course[] courses) {
+            this.courses = courses;
+            int capacity = Integer.highestOneBit(Math.max(courses.length * 2, 2) - 1) << 1;
+            keys = new int[capacity];
+            values = new Course[capacity];
+            mask = capacity - 1;
+            for (Course c : courses) {
+                if (insert(c)) {
+                    int[] indexes = indexesByID.get(c.getCourseID());
+                    indexes = indexes == null ? new int[1] : Arrays.copyOf(indexes, indexes.length + 1);
+                    indexes[indexes.length - 1] = c.getCourseIndex();
+                    indexesByID.put(c.getCourseID(), indexes);
+                }
+            }
+        }
+
+        /**
+         * @param c Course to put into its slot, or into overflow if the slot of its index belongs to another course ID
+         * @return false if the course ID and index were already in the table
+         */
+        private boolean insert(Course c) {
+            int index = c.getCourseIndex();
+            for (int i = slot(index); ; i = (i + 1) & mask) {
+                Course taken = values[i];
+                if (taken == null) {
+                    keys[i] = index;
+                    values[i] = c;
+                    return true;
+                }
+                if (keys[i] == index) {
+                    if (taken.getCourseID().equals(c.getCourseID())) {
+                        return false;
+                    }
+                    return overflow.putIfAbsent(key(c.getCourseID(), index), c) == null;
+                }
+            }
+        }
+
+        /**
+         * @param courseID course ID
+         * @param courseIndex course index
+         * @return the course, null if there is none
+         */
+        private Course get(String courseID, int courseIndex) {
+            for (int i = slot(courseIndex); values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == courseIndex) {
+                    if (values[i].getCourseID().equals(courseID)) {
+                        return values[i];
+                    }
+                    break; // the index belongs to another course ID, this one can only be in overflow
+                }
+            }
+            return overflow.isEmpty() ? null : overflow.get(key(courseID, courseIndex));
+        }
+
+        /**
+         * @param courseIndex course index
+         * @return first slot to probe, the bits of the index are mixed as indexes are often consecutive
+         */
+        private int slot(int courseIndex) {
+            int h = courseIndex * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & mask;
+        }
+    }
+}
@@ -15,16 +15,30 @@ public class CourseManager { // control class
 	
 	private static CourseDatabaseManager cdm = new CourseDatabaseManager();
 	private static List<Course> courses=null;
-	private static int result;
+	/**
+	 * the Course objects of courses by ID and index, kept in sync with courses
+	 */
+	private static CourseIndexMap courseMap=null;
 	private static Course newCourse;
 
 	/**
 	 * Constructor for the CourseManager
 	 */
 	public CourseManager() {
+		load();
+	}
+
+	
+	/** 
+	 * Gets the courses from CourseDatabaseManager the first time, and builds courseMap over them
+	 * @return List&lt;Course> of every course
+	 */
+	private static synchronized List<Course> load(){
 		if(courses == null){
 			courses = CourseDatabaseManager.getAllCourses();
+			courseMap = new CourseIndexMap(courses);
 		}
+		return courses;
 	}
 
 	
@@ -40,15 +54,22 @@ public class CourseManager { // control class
 	}
 
 	
+	/** 
+	 * Returns the map of every course by course ID and index, the same Course objects getCourse returns
+	 * @return CourseIndexMap
+	 */
+	static CourseIndexMap getCourseMap(){
+		load();
+		return courseMap;
+	}
+
+	
 	/** 
 	 * Sorts courses using the Comparators defined in Course
 	 * @param index_or_id Which comparator to use. Accepts "index","id", or any string. Defaults to "id".
 	 */
 	private static void sortBy(String index_or_id){ // sorting
-		if (courses == null) {
-			courses = CourseDatabaseManager.getAllCourses(); // if we have not initialised courses, then we get it now
-
-		}
+		load(); // if we have not initialised courses, then we get it now
 		if(index_or_id.equals("index")){
 			Collections.sort(courses, Course.courseIndexComparator);
 		}else{
@@ -73,16 +94,14 @@ public class CourseManager { // control class
 	 
 	public void addCourse(String courseID, String school, String courseType, int AU, int courseIndex, int courseSize,
 			String[] lessonList) {
-		if (courses == null) {
-			courses = CourseDatabaseManager.getAllCourses();
-
-		}
+		load();
 		if (checkCourses(courseID, courseIndex) == -1 || checkCourses(courseID, courseIndex) == 1) { // if course don't
 																										// exist
 			cdm.addCourse(courseID, school, courseIndex, courseSize, lessonList, courseType, AU);
 			System.out.println(courseID+"/"+courseIndex+" created");
 			Course temp = new Course(courseID, school, courseType, AU, courseIndex, courseSize, lessonList);
 			courses.add(temp);
+			courseMap.put(temp);
 			
 			System.out.println("Course Index added: " + temp.getCourseIndex());
 			newCourse = temp; // store it in new courses
@@ -113,6 +132,8 @@ public class CourseManager { // control class
 	
 	/** 
 	 * Updates the course object with the new details
+	 * the rows and Student objects of the students who take the course are updated first,
+	 * the course is only changed if they were saved, so students and course never disagree
 	 * @param courseID			Course ID of the course
 	 * @param school			School the course in under
 	 * @param oldCourseIndex	Previous course index
@@ -121,7 +142,7 @@ public class CourseManager { // control class
 	 * @param courseType		Course type of course (GERPE, UE, CORE)
 	 * @param AU				Number of AUs in the course
 	 * @param newLesson 		String array of new lesson details
-	 * @return boolean whether course was successfully updated. False if unsuccessful, true otherwise.
+	 * @return boolean whether course was successfully updated. False if unsuccessful (nothing is changed then), true otherwise.
 	 */
 	public boolean updateCourse(String courseID, String school, int oldCourseIndex, int newCourseIndex, int courseSize,
 			String courseType, int AU, String[] newLesson) {
@@ -140,8 +161,13 @@ public class CourseManager { // control class
 			return false;
 		}
 
+		if(StudentDatabaseManager.getInstance().updateCourseStudents(temp, newCourseIndex, AU) == -1){ // students who take the course get the new index and AU
+			System.out.println("Course could not be updated, nothing was changed. Please try again.");
+			return false;
+		}
 		temp.setSchool(school);
 		temp.setCourseIndex(newCourseIndex);
+		courseMap.reindex(temp);
 		temp.setVacancy(courseSize - registeredStudents);
 		temp.setCourseSize(courseSize);
 		temp.setCourseType(courseType);
@@ -180,18 +206,11 @@ public class CourseManager { // control class
 	 * @return int 0 if courseID and courseIndex both exist, referring to the same Course object. Else 1 if courseID exists, and -1 otherwise.
 	 */
 	private int checkCourses(String courseID, int courseIndex) { // if course exists
-		result = -1; // result=-1 if don't exist
-		for (Course course : courses) {
-			if(course.getCourseID().equals(courseID)){
-				result += 2; // result=1 if contain courseID
-				if (course.getCourseIndex() == courseIndex) {
-					result = 0; // result=0 if contain index
-					return result;
-				}
-				
-			}
+		load();
+		if (courseMap.get(courseID, courseIndex) != null) {
+			return 0; // result=0 if contain index
 		}
-		return result;
+		return -1 + 2 * courseMap.indexesOf(courseID).length; // result=-1 if don't exist, +2 for every index of courseID
 	}
 
 	
@@ -284,25 +303,12 @@ public class CourseManager { // control class
 	 * @return Course object with specified course ID and course index.
 	 */
 	public Course getCourse(String courseID, int courseIndex) {
-		if(courses==null){
-			courses = CourseDatabaseManager.getAllCourses();
-			
-		}
-		if (ifCourseExists(courseID, courseIndex)) {
-			for (Course temp : courses) {
-				if(temp.getCourseID().equals(courseID)){
-					if(temp.getCourseIndex() == courseIndex){
-						return temp;
-						
-					}
-				}
-				
-			}
-		}else{
+		load();
+		Course temp = courseMap.get(courseID, courseIndex);
+		if (temp == null) {
 			System.out.println("course does not exist!");
-			
 		}
-		return null;
+		return temp;
 	}
 
 	
@@ -316,10 +322,8 @@ public class CourseManager { // control class
 	public ArrayList<Course> getCourse(String courseID) {
 		ArrayList<Course> courseList = new ArrayList<Course>();
 		if (ifCourseExists(courseID)) {
-			for (Course course : courses) {
-				if(course.getCourseID().equals(courseID)){
-					courseList.add(course);
-				}
+			for (int courseIndex : courseMap.indexesOf(courseID)) {
+				courseList.add(courseMap.get(courseID, courseIndex));
 			}return courseList;
 		}else{
 			System.out.println("course does not exist!");
@@ -335,11 +339,7 @@ public class CourseManager { // control class
 	 */
 	public void getTimeTable(String courseID, int courseIndex){ // get timetable of particular course
 		if (ifCourseExists(courseID, courseIndex)==true) {// check courseIndex and courseID exists
-			for(Course c: courses){
-				if (c.getCourseIndex()==courseIndex){
-					c.printSchedule(courseIndex);
-				}
-			}
+			courseMap.get(courseID, courseIndex).printSchedule(courseIndex);
 		}
 	}
 
@@ -90,6 +90,8 @@ public class CourseTimeTable{
      */
     public CourseTimeTable(Course c, ArrayList<Lesson> timeTable){ // can put all the info into excel sheet with each row having a specific duration 
         // so if the input duration is within those ranges, we know exactly which row it is to check
+        this.courseIndex = c.getCourseIndex();
+        this.courseID = c.getCourseID();
         this.timeTable = timeTable; // each row have columns representing the venue, type of class etc
         setTimeTableCourseID_Index();
     }
@@ -0,0 +1,153 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+* <h1>CredentialStore</h1>
+* Salt and hash of every user of a login file (ADMINLOGIN.csv, STUDENTLOGIN.csv), keyed by username.
+* <p>
+* A login file is read once, the first time one of its users logs in, and the salt and hash of every row are
+* decoded from Base64 then. A login looks up its user and runs exactly one PBKDF2WithHmacSHA512 derivation,
+* with the iteration count and key length stored in the user's row (rows without them were hashed with the legacy cost).
+* Login puts every credential it writes (addPassword, changePassword, a rehash after login), so the store stays in sync with the file.
+* e.g. CredentialStore.Credential c = CredentialStore.get(Login.STUDENTLOGIN, "DON001");
+* @version 1.0
+* @since   2020-25-11
+*/
+public class CredentialStore {
+    /**
+    * creates logger instance of credential store to log exceptions and other errors
+    */
+    private static Logger logger = Logger.getLogger(CredentialStore.class.getName());
+    /**
+    * credentials of every login file that was read, by file and username
+    */
+    private static final Map<String, Map<String, Credential>> files = new HashMap<String, Map<String, Credential>>();
+
+    /**
+     * gets the credential of a user
+     * @param loginFile login file of the user's domain
+     * @param userName username eg. "DON001"
+     * @return Credential of the user, null if the user is not in the file
+     */
+    public static Credential get(String loginFile, String userName) {
+        return credentials(loginFile).get(userName);
+    }
+
+    /**
+     * puts the credential of a user that was just written to the login file
+     * @param loginFile login file the credential was written to
+     * @param userName username
+     * @param salt salt of the password
+     * @param hash PBKDF2 hash of the password with the salt, with the current ITERATION_COUNT and KEY_LENGTH
+     */
+    public static void put(String loginFile, String userName, byte[] salt, byte[] hash) {
+        credentials(loginFile).put(userName, new Credential(salt, hash,
+                PBKDF2WithHmacSHA512.ITERATION_COUNT, PBKDF2WithHmacSHA512.KEY_LENGTH));
+    }
+
+    /**
+     * @param loginFile login file
+     * @return credentials of the file by username, read from the file the first time
+     */
+    private static Map<String, Credential> credentials(String loginFile) {
+        synchronized (files) {
+            Map<String, Credential> byUser = files.get(loginFile);
+            if (byUser == null) {
+                byUser = read(loginFile);
+                files.put(loginFile, byUser);
+            }
+            return byUser;
+        }
+    }
+
+    /**
+     * reads and decodes every credential of a login file
+     * @param loginFile login file
+     * @return credentials by username, empty if the file could not be read
+     */
+    private static Map<String, Credential> read(String loginFile) {
+        Map<String, Credential> byUser = new ConcurrentHashMap<String, Credential>();
+        int salt = Login.columns.Salt.ordinal();
+        int hash = Login.columns.Hash.ordinal();
+        int keyLength = Login.columns.KeyLength.ordinal();
+        try (BufferedReader fileReader = new BufferedReader(new FileReader(loginFile))) {
+            fileReader.readLine(); // header
+            CsvTokenizer tokens = new CsvTokenizer();
+            String line;
+            while ((line = fileReader.readLine()) != null) {
+                tokens.reset(line);
+                if (tokens.size() <= hash) {
+                    continue;
+                }
+                try {
+                    boolean costStored = tokens.size() > keyLength && !tokens.field(keyLength).trim().isEmpty();
+                    byUser.put(tokens.field(Login.columns.Username.ordinal()), new Credential(
+                            Base64.getDecoder().decode(tokens.field(salt).trim()),
+                            Base64.getDecoder().decode(tokens.field(hash).trim()),
+                            costStored ? Integer.parseInt(tokens.field(Login.columns.Iterations.ordinal()).trim())
+                                    : PBKDF2WithHmacSHA512.LEGACY_ITERATION_COUNT,
+                            costStored ? Integer.parseInt(tokens.field(keyLength).trim())
+                                    : PBKDF2WithHmacSHA512.LEGACY_KEY_LENGTH));
+                } catch (IllegalArgumentException e) {
+                    logger.log(Level.WARNING, "Skipped a row of " + loginFile + " that could not be decoded (CredentialStore -> read)", e);
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not read " + loginFile + " (CredentialStore -> read)", e);
+        }
+        return byUser;
+    }
+
+    /**
+    * <h1>Credential</h1>
+    * decoded salt and hash of one user, and the cost the hash was derived with
+    */
+    public static final class Credential {
+        private final byte[] salt;
+        private final byte[] hash;
+        private final int iterations;
+        private final int keyLength;
+
+        private Credential(byte[] salt, byte[] hash, int iterations, int keyLength) {
+            this.salt = salt.clone();
+            this.hash = hash.clone();
+            this.iterations = iterations;
+            this.keyLength = keyLength;
+        }
+
+        /**
+         * runs one PBKDF2WithHmacSHA512 derivation of the attempted password with the stored cost and compares it with the hash
+         * @param attemptedPassword password that was entered
+         * @return true if the password is correct
+         * @exception Exception if the algorithm is not available
+         */
+        public boolean authenticate(String attemptedPassword) throws Exception {
+            return PBKDF2WithHmacSHA512.authenticate(attemptedPassword, salt, hash, iterations, keyLength);
+        }
+
+        /**
+         * @param salt Base64 salt of a row of the login file
+         * @param hash Base64 hash of the same row
+         * @return true if the row still holds this salt and hash
+         */
+        public boolean isStoredAs(String salt, String hash) {
+            Base64.Decoder decoder = Base64.getDecoder();
+            return Arrays.equals(this.salt, decoder.decode(salt)) && Arrays.equals(this.hash, decoder.decode(hash));
+        }
+
+        /**
+         * @return true if the hash was derived with another cost than the current ITERATION_COUNT and KEY_LENGTH
+         */
+        public boolean needsRehash() {
+            return !PBKDF2WithHmacSHA512.isCurrent(iterations, keyLength);
+        }
+    }
+}
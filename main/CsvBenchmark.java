@@ -0,0 +1,153 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+* <h1>CsvBenchmark</h1>
+* Compares the old way of handling a csv line (String.split, Arrays.asList, String.join)
+* with CsvTokenizer and CsvWriter, over every line of a csv file.
+* <p>
+* The scan variants look up a value in every line and write the line back out, which is what Login does
+* for every row. The write variants write rows that are already parsed, which is what CsvTable does on every flush.
+* Time and bytes allocated per line are printed.
+* run with: java CsvBenchmark [csv file] [rounds], defaults to STUDENT.csv and 2000 rounds
+* @version 1.0
+* @since   2020-25-11
+*/
+public class CsvBenchmark {
+    /**
+    * sink for the lines, so writing costs nothing but the conversion
+    */
+    private static final Writer SINK = Writer.nullWriter();
+    /**
+    * keeps the results alive so the JIT cannot drop the work
+    */
+    private static long blackhole = 0;
+
+    /**
+     * @param args csv file and number of rounds
+     * @exception IOException if the csv could not be read
+     */
+    public static void main(String[] args) throws IOException {
+        String fileName = args.length > 0 ? args[0] : StudentDatabaseManager.STUDENTFILE;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        List<String> lines = Files.readAllLines(Paths.get(fileName));
+        List<String[]> rows = MappedCsvReader.readAll(fileName);
+        String lookingFor = lines.get(lines.size() - 1).split(",", -1)[0];
+        long total = lines.size() * (long) rounds;
+
+        for (int warmup = 0; warmup < 3; warmup++) {
+            splitJoin(lines, lookingFor, rounds);
+            tokenizerWriter(lines, lookingFor, rounds);
+            joinRows(rows, rounds);
+            writeRows(rows, rounds);
+        }
+        report("scan split/asList/join", total, () -> splitJoin(lines, lookingFor, rounds));
+        report("scan CsvTokenizer", total, () -> tokenizerWriter(lines, lookingFor, rounds));
+        report("write String.join", total, () -> joinRows(rows, rounds));
+        report("write CsvWriter", total, () -> writeRows(rows, rounds));
+        System.out.println("(" + blackhole + ")");
+    }
+
+    /**
+     * the pattern the managers used before: split the line, search it through a List and join it again
+     * @param lines lines of the csv
+     * @param lookingFor value to look for
+     * @param rounds number of passes over the lines
+     * @exception IOException never, SINK does not fail
+     */
+    private static void splitJoin(List<String> lines, String lookingFor, int rounds) throws IOException {
+        for (int r = 0; r < rounds; r++) {
+            for (String line : lines) {
+                String[] tokens = line.split(",", -1);
+                List<String> token = Arrays.asList(tokens);
+                if (token.contains(lookingFor)) {
+                    blackhole++;
+                }
+                String s = String.join(",", tokens);
+                SINK.write(s + "\n");
+            }
+        }
+    }
+
+    /**
+     * the same work through one reused CsvTokenizer and CsvWriter
+     * @param lines lines of the csv
+     * @param lookingFor value to look for
+     * @param rounds number of passes over the lines
+     * @exception IOException never, SINK does not fail
+     */
+    private static void tokenizerWriter(List<String> lines, String lookingFor, int rounds) throws IOException {
+        CsvTokenizer tokens = new CsvTokenizer();
+        CsvWriter csv = new CsvWriter(SINK, "\n");
+        for (int r = 0; r < rounds; r++) {
+            for (String line : lines) {
+                if (tokens.reset(line).contains(lookingFor)) {
+                    blackhole++;
+                }
+                blackhole += csv.writeLine(line);
+            }
+        }
+    }
+
+    /**
+     * the old flush: join every row into a String, then encode it again to count its bytes
+     * @param rows parsed rows of the csv
+     * @param rounds number of passes over the rows
+     * @exception IOException never, SINK does not fail
+     */
+    private static void joinRows(List<String[]> rows, int rounds) throws IOException {
+        for (int r = 0; r < rounds; r++) {
+            for (String[] row : rows) {
+                String line = String.join(",", row);
+                blackhole += line.getBytes().length;
+                SINK.write(line);
+                SINK.write("\n");
+            }
+        }
+    }
+
+    /**
+     * the flush through CsvWriter, fields go straight to the Writer
+     * @param rows parsed rows of the csv
+     * @param rounds number of passes over the rows
+     * @exception IOException never, SINK does not fail
+     */
+    private static void writeRows(List<String[]> rows, int rounds) throws IOException {
+        CsvWriter csv = new CsvWriter(SINK, "\n");
+        for (int r = 0; r < rounds; r++) {
+            for (String[] row : rows) {
+                blackhole += csv.writeRow(row);
+            }
+        }
+    }
+
+    /**
+     * runs one variant and prints its time and allocation per line
+     * @param name name of the variant
+     * @param lines number of lines processed
+     * @param run the variant
+     * @exception IOException never, SINK does not fail
+     */
+    private static void report(String name, long lines, Run run) throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+        long bytesBefore = threads.getThreadAllocatedBytes(id);
+        long start = System.nanoTime();
+        run.run();
+        long nanos = System.nanoTime() - start;
+        long bytes = threads.getThreadAllocatedBytes(id) - bytesBefore;
+        System.out.printf("%-24s %8.1f ns/line %8.1f bytes/line%n", name, nanos / (double) lines, bytes / (double) lines);
+    }
+
+    /**
+    * one benchmark variant
+    */
+    private interface Run {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,721 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+* <h1>CsvTable</h1>
+* In-memory table engine that sits behind DatabaseManager, the default StorageEngine.
+* <p>
+* Each csv file is read once and kept resident as a list of parsed rows (the header is row 0).
+* All mutations are applied to the rows in memory and the table is marked dirty,
+* the file itself is rewritten in the background by a write-behind flusher either every
+* FLUSH_INTERVAL_MS or as soon as FLUSH_THRESHOLD rows have been changed, whichever comes first.
+* flush() and flushAll() write the table synchronously, and are called on shutdown.
+* <p>
+* Every table is written through its own temporary file (eg. STUDENT.csv.tmp) under its own lock,
+* so different tables are flushed in parallel and a flush of COURSE.csv never waits for one of STUDENT.csv.
+* <p>
+* Every write also writes the Checkpoint of the file (eg. STUDENT.csv.ckpt) before the file is replaced,
+* and a file is checked against its checkpoint before it is loaded.
+* <p>
+* Tables whose file is in the FixedWidthFormat (eg. STUDENT.fixed) are not rewritten on flush,
+* only the cells that changed are written in place. The whole file is only rewritten when a
+* changed cell no longer fits the width of its column.
+* <p>
+* Values that repeat across rows (the columns named in StringPool.COLUMNS, eg. School, Nationality, Course 1)
+* are kept as one shared copy from the StringPool.
+* <p>
+* Rows are read and changed by key under a shared lock and the lock of the row's stripe (StripedLock, by row number),
+* so sessions working on different students or courses do not wait for each other, while two changes of the same
+* row are serialized. Scans and copies of the rows also take the shared lock and lock the stripe of one row at a time.
+* Appends, changes that move an indexed key, replacing every matching row and the copy taken by a flush lock the whole table.
+* <p>
+* settings can be changed with the system properties stars.flush.interval.ms, stars.flush.threshold, stars.flush.threads
+* and stars.lock.stripes
+* @version 1.0
+* @since   2020-25-11
+*/
+public class CsvTable implements StorageEngine {
+    /**
+    * creates logger instance of csv table to log exceptions and other errors
+    */
+    private static Logger logger = Logger.getLogger(CsvTable.class.getName());
+    /**
+    * how often (in milliseconds) dirty tables are written back to disk
+    */
+    static final long FLUSH_INTERVAL_MS = Long.getLong("stars.flush.interval.ms", 2000L);
+    /**
+    * number of changed rows after which a flush is started without waiting for the interval
+    */
+    static final int FLUSH_THRESHOLD = Integer.getInteger("stars.flush.threshold", 64);
+    /**
+    * number of tables that can be written at the same time
+    */
+    static final int FLUSH_THREADS = Integer.getInteger("stars.flush.threads", 2);
+    /**
+    * number of row lock stripes of every table
+    */
+    static final int LOCK_STRIPES = Integer.getInteger("stars.lock.stripes", 64);
+    /**
+    * edit() result of a transaction that was rolled back
+    */
+    private static final int ROLLED_BACK = -1;
+    /**
+    * edit() result when a key of an index would move, which is only allowed under the write lock
+    */
+    private static final int MOVES_KEY = -2;
+    /**
+    * suffix of the temporary file a table is written into before it replaces the file eg. STUDENT.csv.tmp
+    */
+    private static final String TEMP_SUFFIX = ".tmp";
+    /**
+    * tables that are already loaded, keyed by absolute file path
+    */
+    private static final Map<String, CsvTable> tables = new HashMap<String, CsvTable>();
+    /**
+    * background threads that write dirty tables back to their files, one table per thread at a time
+    */
+    private static final ScheduledExecutorService flusher = Executors.newScheduledThreadPool(FLUSH_THREADS, r -> {
+        Thread t = new Thread(r, "csv-table-flusher");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(CsvTable::flushAllQuietly, "csv-table-shutdown"));
+    }
+
+    /**
+    * file path of this table
+    */
+    private final String FILE;
+    /**
+    * temporary file this table is written into before it replaces FILE
+    */
+    private final String TEMPFILE;
+    /**
+    * held while the table is written, so an early flush and the periodic flush of this table do not overlap
+    */
+    private final Object flushLock = new Object();
+    /**
+    * rows of the csv, row 0 is the header
+    */
+    private final List<String[]> rows;
+    /**
+    * primary-key indexes over this table
+    */
+    private final List<RowIndex> indexes = new ArrayList<RowIndex>();
+    /**
+    * layout of the file if it is a fixed-width table, null for csv files
+    */
+    private FixedWidthFormat fixedWidth;
+    /**
+    * columns whose values are kept as their StringPool copies
+    */
+    private final int[] pooled;
+    /**
+    * for fixed-width tables, every row changed since the last flush as it is in the file (null for added rows)
+    * also the lock of the flush bookkeeping (dirtyRows, flushQueued)
+    */
+    private final Map<Integer, String[]> unflushed = new HashMap<Integer, String[]>();
+    /**
+    * number of rows changed since the last flush, guarded by unflushed
+    */
+    private int dirtyRows = 0;
+    /**
+    * set while an early flush is waiting in the flusher queue, guarded by unflushed
+    */
+    private boolean flushQueued = false;
+    /**
+    * held shared while single rows are read or changed by key, and exclusively for scans, appends, index changes
+    * and while a flush takes its copy of the rows
+    */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+    * locks of the rows, by row number, taken under the shared lock by reads and changes of single rows
+    */
+    private final StripedLock rowLocks = new StripedLock(LOCK_STRIPES);
+
+    /**
+    * loads the csv file into memory, after checking it against its Checkpoint
+    * @param fileName file path of the csv
+    * @exception IllegalStateException if the file does not match its checkpoint and could not be repaired
+    */
+    private CsvTable(String fileName) {
+        FILE = fileName;
+        TEMPFILE = fileName + TEMP_SUFFIX;
+        Checkpoint.verify(fileName, TEMPFILE);
+        rows = read(fileName);
+        if (FixedWidthFormat.isFixedWidth(fileName) && !rows.isEmpty()) {
+            fixedWidth = FixedWidthFormat.fromHeader(rows.get(0));
+            for (String[] row : rows) {
+                FixedWidthFormat.decode(row);
+            }
+        }
+        pooled = rows.isEmpty() ? new int[0] : StringPool.columns(rows.get(0));
+        for (int i = 1; i < rows.size(); i++) {
+            StringPool.canon(rows.get(i), pooled);
+        }
+    }
+
+    /**
+     * gets the table of a csv file, the file is only read the first time
+     * @param fileName file path of the csv
+     * @return CsvTable of the file
+     */
+    public static CsvTable of(String fileName) {
+        String key = Paths.get(fileName).toAbsolutePath().normalize().toString();
+        synchronized (tables) {
+            CsvTable table = tables.get(key);
+            if (table == null) {
+                table = new CsvTable(fileName);
+                tables.put(key, table);
+                flusher.scheduleWithFixedDelay(table::flushQuietly, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            }
+            return table;
+        }
+    }
+
+    /**
+     * adds a primary-key index over the key columns, lookups and updates by that key no longer scan the table
+     * @param cols key columns eg. 2 for Username or 0, 2 for CourseID+Index
+     */
+    public void createIndex(int... cols) {
+        lock.writeLock().lock();
+        try {
+            for (RowIndex index : indexes) {
+                if (index.covers(cols)) {
+                    return;
+                }
+            }
+            indexes.add(new RowIndex(cols, rows));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return String file path of this table
+     */
+    public String getFILE() {
+        return FILE;
+    }
+
+    /**
+     * gets a copy of the first row whose column col equals lookingFor
+     * @param col column number to look for unique identifier eg. Username
+     * @param lookingFor item to look for eg. "Hermione"
+     * @return String[] copy of the row, null if not found
+     */
+    public String[] find(int col, String lookingFor) {
+        return find(new int[] { col }, lookingFor);
+    }
+
+    /**
+     * gets a copy of the row with a key, uses the index over the key columns if there is one
+     * only the stripe of the row is locked, so rows can be read while other rows change
+     * @param cols key columns eg. {0, 2} for CourseID+Index
+     * @param key values of the key columns joined by commas eg. "RA1001,1201"
+     * @return String[] copy of the row, null if not found
+     */
+    public String[] find(int[] cols, String key) {
+        lock.readLock().lock();
+        try {
+            for (int i : positions(cols, key)) {
+                ReentrantLock held = rowLocks.lock(i);
+                try {
+                    String[] row = rows.get(i);
+                    if (key.equals(RowIndex.key(row, cols))) { // the row may have changed before its stripe was locked
+                        return row.clone();
+                    }
+                } finally {
+                    held.unlock();
+                }
+            }
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * gets a copy of the first row that matches
+     * the table is scanned under the shared lock, with the stripe of each row locked while it is tested
+     * @param match condition the row has to fulfill
+     * @return String[] copy of the row, null if not found
+     */
+    public String[] find(Predicate<String[]> match) {
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < rows.size(); i++) {
+                ReentrantLock held = rowLocks.lock(i);
+                try {
+                    String[] row = rows.get(i);
+                    if (match.test(row)) {
+                        return row.clone();
+                    }
+                } finally {
+                    held.unlock();
+                }
+            }
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return copy of all rows including the header, safe to iterate while the table changes
+     */
+    public List<String[]> rows() {
+        lock.readLock().lock();
+        try {
+            List<String[]> copy = new ArrayList<String[]>(rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                ReentrantLock held = rowLocks.lock(i); // each row is copied as it is between two changes
+                try {
+                    copy.add(rows.get(i).clone());
+                } finally {
+                    held.unlock();
+                }
+            }
+            return copy;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * replaces every row that matches with the result of edit, the whole table is locked while it is scanned
+     * the edit gets a copy of the row, so it can change and return it directly
+     * @param match condition the row has to fulfill
+     * @param edit returns the new row
+     * @return number of rows changed
+     */
+    public int update(Predicate<String[]> match, UnaryOperator<String[]> edit) {
+        lock.writeLock().lock();
+        try {
+            int changed = 0;
+            for (int i = 0; i < rows.size(); i++) {
+                if (match.test(rows.get(i))) {
+                    set(i, edit.apply(rows.get(i).clone()));
+                    changed++;
+                }
+            }
+            markDirty(changed);
+            return changed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * replaces the row whose column col equals key with the result of edit
+     * @param col column number of the key eg. Matriculation Number
+     * @param key key of the row eg. "U2000001C"
+     * @param edit gets a copy of the row and returns the new row
+     * @return number of rows changed
+     */
+    public int update(int col, String key, UnaryOperator<String[]> edit) {
+        return update(new int[] { col }, key, edit);
+    }
+
+    /**
+     * replaces the row with a key with the result of edit, uses the index over the key columns if there is one
+     * only the stripe of the row is locked, so other rows can change at the same time
+     * @param cols key columns eg. {0, 2} for CourseID+Index
+     * @param key values of the key columns joined by commas eg. "RA1001,1201"
+     * @param edit gets a copy of the row and returns the new row
+     * @return number of rows changed
+     */
+    public int update(int[] cols, String key, UnaryOperator<String[]> edit) {
+        return edit(Collections.singletonList(new RowEdit(cols, key, edit)), false);
+    }
+
+    /**
+     * adds a row at the end of the table
+     * @param row row to add
+     */
+    public void append(String[] row) {
+        lock.writeLock().lock();
+        try {
+            rows.add(StringPool.canon(row.clone(), pooled));
+            remember(rows.size() - 1, null);
+            RowCache.invalidate(FILE, row);
+            for (RowIndex index : indexes) {
+                index.update(rows.size() - 1, null, row);
+            }
+            markDirty(1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * replaces a row and moves its keys in every index, and drops the old and the new row from the RowCache
+     * keys may only move while the write lock is held
+     * @param i row number
+     * @param row new row
+     */
+    private void set(int i, String[] row) {
+        String[] old = rows.set(i, StringPool.canon(row, pooled));
+        remember(i, old);
+        RowCache.invalidate(FILE, old);
+        RowCache.invalidate(FILE, row);
+        for (RowIndex index : indexes) {
+            index.update(i, old, row);
+        }
+    }
+
+    /**
+     * keeps the row as it is in the file until the next flush, so a fixed-width table only writes what changed
+     * @param i row number
+     * @param old row before the change, null if the row was added
+     */
+    private void remember(int i, String[] old) {
+        if (FixedWidthFormat.isFixedWidth(FILE)) {
+            synchronized (unflushed) {
+                if (!unflushed.containsKey(i)) {
+                    unflushed.put(i, old);
+                }
+            }
+        }
+    }
+
+    /**
+     * finds the rows with a key, through the index over the key columns or by scanning the table
+     * @param cols key columns
+     * @param key values of the key columns joined by commas
+     * @return row numbers with the key
+     */
+    private List<Integer> positions(int[] cols, String key) {
+        List<Integer> found = new ArrayList<Integer>();
+        for (RowIndex index : indexes) {
+            if (index.covers(cols)) {
+                return new ArrayList<Integer>(index.get(key)); // the index changes when a key moves
+            }
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            if (key.equals(RowIndex.key(rows.get(i), cols))) {
+                found.add(i);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * starts a transaction on this table
+     * @return Transaction that collects row edits until commit() is called
+     */
+    public Transaction begin() {
+        return new Transaction();
+    }
+
+    /**
+     * applies all edits of a transaction in one pass over the rows
+     * nothing is changed unless every edit found its row and none of them failed
+     * @param edits edits of the transaction
+     * @return true if the transaction was applied, false if it was rolled back
+     */
+    private boolean commit(List<RowEdit> edits) {
+        return edit(edits, true) != ROLLED_BACK;
+    }
+
+    /**
+     * applies edits to the rows with their keys
+     * the rows are first edited under the read lock and the stripes of the rows only, so edits of rows on other
+     * stripes run at the same time. An edit that moves a key of an index is repeated under the write lock.
+     * @param edits edits to apply
+     * @param atomic true to change nothing if an edit finds no row or fails, as for a transaction
+     * @return number of rows changed, ROLLED_BACK if an atomic edit was rolled back
+     */
+    private int edit(List<RowEdit> edits, boolean atomic) {
+        lock.readLock().lock();
+        try {
+            int changed = edit(edits, atomic, true);
+            if (changed != MOVES_KEY) {
+                return changed;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            return edit(edits, atomic, false);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * applies edits to the rows with their keys, either under the read lock and the stripes of the rows or under the write lock
+     * @param edits edits to apply
+     * @param atomic true to change nothing if an edit finds no row or fails
+     * @param shared true if only the read lock is held, the stripes of the rows are then locked here
+     * @return number of rows changed, ROLLED_BACK if an atomic edit was rolled back,
+     *          MOVES_KEY if nothing was changed because an edit moves a key and only the read lock is held
+     */
+    private int edit(List<RowEdit> edits, boolean atomic, boolean shared) {
+        List<List<Integer>> found = new ArrayList<List<Integer>>();
+        List<Integer> all = new ArrayList<Integer>();
+        for (RowEdit edit : edits) {
+            found.add(positions(edit.cols, edit.key));
+            all.addAll(found.get(found.size() - 1));
+        }
+        List<ReentrantLock> held = shared ? rowLocks.lockAll(all) : Collections.<ReentrantLock>emptyList();
+        try {
+            Map<Integer, String[]> changed = new LinkedHashMap<Integer, String[]>();
+            for (int e = 0; e < edits.size(); e++) {
+                RowEdit edit = edits.get(e);
+                boolean any = false;
+                for (int i : found.get(e)) {
+                    String[] current = changed.containsKey(i) ? changed.get(i) : rows.get(i).clone();
+                    if (!edit.key.equals(RowIndex.key(current, edit.cols))) {
+                        continue; // the row changed before its stripe was locked
+                    }
+                    try {
+                        changed.put(i, edit.edit.apply(current));
+                    } catch (RuntimeException ex) {
+                        if (!atomic) {
+                            throw ex;
+                        }
+                        logger.log(Level.FINE, "Rolled back transaction on " + FILE + " (CsvTable -> commit)", ex);
+                        return ROLLED_BACK;
+                    }
+                    any = true;
+                }
+                if (!any && atomic) {
+                    logger.log(Level.FINE, "Rolled back transaction on " + FILE + ", no row with " + edit.key);
+                    return ROLLED_BACK;
+                }
+            }
+            if (shared) {
+                for (Map.Entry<Integer, String[]> entry : changed.entrySet()) {
+                    for (RowIndex index : indexes) {
+                        if (index.moves(rows.get(entry.getKey()), entry.getValue())) {
+                            return MOVES_KEY;
+                        }
+                    }
+                }
+            }
+            for (Map.Entry<Integer, String[]> entry : changed.entrySet()) {
+                set(entry.getKey(), entry.getValue());
+            }
+            markDirty(changed.size());
+            return changed.size();
+        } finally {
+            StripedLock.unlockAll(held);
+        }
+    }
+
+    /**
+     * counts changed rows and starts an early flush if there are too many of them
+     * @param changed number of rows changed
+     */
+    private void markDirty(int changed) {
+        if (changed == 0) {
+            return;
+        }
+        synchronized (unflushed) {
+            dirtyRows += changed;
+            if (dirtyRows >= FLUSH_THRESHOLD && !flushQueued) {
+                flushQueued = true;
+                flusher.execute(this::flushQuietly);
+            }
+        }
+    }
+
+    /**
+     * writes the table to its file if anything changed since the last flush
+     * @exception IOException if the file could not be written
+     */
+    public void flush() throws IOException {
+        synchronized (flushLock) {
+            List<String[]> toWrite;
+            Map<Integer, String[]> changed;
+            lock.writeLock().lock();
+            try {
+                synchronized (unflushed) {
+                    flushQueued = false;
+                    if (dirtyRows == 0) {
+                        return;
+                    }
+                    changed = new HashMap<Integer, String[]>(unflushed);
+                    unflushed.clear();
+                    dirtyRows = 0;
+                }
+                toWrite = new ArrayList<String[]>(rows);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            try {
+                if (FixedWidthFormat.isFixedWidth(FILE)) {
+                    writeFixedWidth(toWrite, changed);
+                } else {
+                    write(toWrite);
+                }
+            } catch (IOException e) {
+                synchronized (unflushed) {
+                    dirtyRows++;
+                    for (Map.Entry<Integer, String[]> entry : changed.entrySet()) {
+                        unflushed.putIfAbsent(entry.getKey(), entry.getValue()); // the file still has the old rows
+                    }
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * flush() for the background thread, errors are only logged
+     */
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not write " + FILE + " (CsvTable -> flush)", e);
+        }
+    }
+
+    /**
+     * synchronously writes every dirty table back to its file, used on shutdown
+     */
+    public static void flushAll() {
+        flushAllQuietly();
+    }
+
+    /**
+     * flushes every loaded table in parallel, errors are only logged
+     */
+    private static void flushAllQuietly() {
+        List<CsvTable> all;
+        synchronized (tables) {
+            all = new ArrayList<CsvTable>(tables.values());
+        }
+        all.parallelStream().forEach(CsvTable::flushQuietly);
+    }
+
+    /**
+     * writes the rows into TEMPFILE, checkpoints it and swaps it with the csv through DurableFile
+     * @param toWrite rows to write
+     * @exception IOException if TEMPFILE could not be written, the csv is then left as it was
+     */
+    private void write(List<String[]> toWrite) throws IOException {
+        DurableFile.replace(FILE, TEMPFILE, out -> {
+            BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(out, Charset.defaultCharset()));
+            CsvWriter csv = new CsvWriter(bw);
+            for (String[] row : toWrite) {
+                csv.writeRow(row);
+            }
+            bw.flush();
+        }, temp -> Checkpoint.save(FILE, temp));
+    }
+
+    /**
+     * writes the changed cells of a fixed-width table in place
+     * if a changed row does not fit the layout, the whole file is rewritten with a wider layout instead
+     * @param toWrite rows of the table
+     * @param changed changed rows as they are in the file, null for added rows
+     * @exception IOException if the file could not be written
+     */
+    private void writeFixedWidth(List<String[]> toWrite, Map<Integer, String[]> changed) throws IOException {
+        boolean fits = fixedWidth != null && new File(FILE).exists();
+        for (int i : changed.keySet()) {
+            fits = fits && fixedWidth.fits(toWrite.get(i));
+        }
+        if (fits) {
+            fixedWidth.writeChanges(FILE, changed, toWrite);
+            Checkpoint.save(FILE, FILE);
+        } else {
+            FixedWidthFormat format = FixedWidthFormat.fitting(toWrite);
+            DurableFile.replace(FILE, TEMPFILE, out -> {
+                BufferedOutputStream bos = new BufferedOutputStream(out);
+                for (String[] row : toWrite) {
+                    bos.write(format.encode(row));
+                }
+                bos.flush();
+            }, temp -> Checkpoint.save(FILE, temp));
+            fixedWidth = format;
+        }
+    }
+
+    /**
+     * reads all rows of a csv file through MappedCsvReader
+     * @param fileName file path of the csv
+     * @return List of rows, empty if the file could not be read
+     */
+    private static List<String[]> read(String fileName) {
+        try {
+            return MappedCsvReader.readAll(fileName);
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Could not open/find " + fileName + " to read (CsvTable -> read)", e);
+            return new ArrayList<String[]>();
+        }
+    }
+    /**
+    * <h1>Transaction</h1>
+    * batch of row edits across several keys that is applied all-or-nothing
+    * e.g. both rows of an index swap
+    */
+    public class Transaction implements StorageEngine.Transaction {
+        /**
+        * edits collected so far
+        */
+        private final List<RowEdit> edits = new ArrayList<RowEdit>();
+
+        /**
+         * adds an edit to the transaction, every row whose column col equals key will be edited
+         * the edit can throw a RuntimeException to roll back the whole transaction
+         * @param col column number of the key eg. Matriculation Number
+         * @param key key of the row eg. "U2000001C"
+         * @param edit gets a copy of the row and returns the new row
+         * @return this Transaction so edits can be chained
+         */
+        public Transaction edit(int col, String key, UnaryOperator<String[]> edit) {
+            edits.add(new RowEdit(new int[] { col }, key, edit));
+            return this;
+        }
+
+        /**
+         * applies all edits of this transaction
+         * @return true if every edit was applied, false if nothing was changed
+         */
+        public boolean commit() {
+            return CsvTable.this.commit(edits);
+        }
+    }
+
+    /**
+    * one edit of a transaction
+    */
+    private static class RowEdit {
+        private final int[] cols;
+        private final String key;
+        private final UnaryOperator<String[]> edit;
+
+        private RowEdit(int[] cols, String key, UnaryOperator<String[]> edit) {
+            this.cols = cols;
+            this.key = key;
+            this.edit = edit;
+        }
+    }
+}
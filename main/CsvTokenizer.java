@@ -0,0 +1,135 @@
+import java.util.Arrays;
+
+/**
+* <h1>CsvTokenizer</h1>
+* Walks one line of a csv and records where every field starts and ends, without creating any Strings.
+* <p>
+* The same instance (and its offset arrays) is reused for every line passed to reset(),
+* fields can be compared in place with fieldEquals/indexOf and only become a String when field() is called.
+* A tokenizer is not thread-safe, every caller keeps its own instance.
+* e.g. tokenizer.reset(line); if (tokenizer.fieldEquals(2, userName)) { String salt = tokenizer.field(2); }
+* @version 1.0
+* @since   2020-25-11
+*/
+public class CsvTokenizer {
+    /**
+    * line that was tokenized last
+    */
+    private CharSequence line = "";
+    /**
+    * start of every field in line
+    */
+    private int[] starts = new int[32];
+    /**
+    * end (exclusive) of every field in line
+    */
+    private int[] ends = new int[32];
+    /**
+    * number of fields in line
+    */
+    private int count = 0;
+
+    /**
+     * tokenizes a line, splits at every comma the same way as String.split(",", -1)
+     * @param line one line of the csv without the line separator
+     * @return this tokenizer
+     */
+    public CsvTokenizer reset(CharSequence line) {
+        this.line = line;
+        count = 0;
+        int start = 0;
+        int length = line.length();
+        for (int i = 0; i < length; i++) {
+            if (line.charAt(i) == ',') {
+                add(start, i);
+                start = i + 1;
+            }
+        }
+        add(start, length);
+        return this;
+    }
+
+    /**
+     * records the boundaries of one field
+     * @param start start of the field
+     * @param end end of the field (exclusive)
+     */
+    private void add(int start, int end) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+        }
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+    }
+
+    /**
+     * @return number of fields in the line
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * compares a field with a value without creating a String
+     * @param i field number
+     * @param value value to compare with
+     * @return true if field i exists and equals value
+     */
+    public boolean fieldEquals(int i, String value) {
+        if (i >= count || ends[i] - starts[i] != value.length()) {
+            return false;
+        }
+        for (int j = 0; j < value.length(); j++) {
+            if (line.charAt(starts[i] + j) != value.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param value value to look for
+     * @return number of the first field equal to value, -1 if there is none
+     */
+    public int indexOf(String value) {
+        for (int i = 0; i < count; i++) {
+            if (fieldEquals(i, value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param value value to look for
+     * @return true if one of the fields equals value
+     */
+    public boolean contains(String value) {
+        return indexOf(value) != -1;
+    }
+
+    /**
+     * materializes one field
+     * @param i field number
+     * @return the field as a String, "" for empty fields
+     */
+    public String field(int i) {
+        if (starts[i] == ends[i]) {
+            return "";
+        }
+        return line.subSequence(starts[i], ends[i]).toString();
+    }
+
+    /**
+     * @return all fields of the line as Strings
+     */
+    public String[] toArray() {
+        String[] fields = new String[count];
+        for (int i = 0; i < count; i++) {
+            fields[i] = field(i);
+        }
+        return fields;
+    }
+}
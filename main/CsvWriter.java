@@ -0,0 +1,91 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+* <h1>CsvWriter</h1>
+* Writes rows of a csv field by field into a Writer, without joining them into a String first.
+* <p>
+* Every row also returns its size in bytes, so callers that keep byte offsets of the lines
+* do not have to encode the line a second time. Fields that are plain ASCII are counted without encoding.
+* e.g. new CsvWriter(bufferedWriter).writeRow(tokens)
+* @version 1.0
+* @since   2020-25-11
+*/
+public class CsvWriter {
+    /**
+    * charset the Writer encodes with, used to count the bytes of non-ASCII fields
+    */
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+    /**
+    * Writer the rows are written into
+    */
+    private final Writer out;
+    /**
+    * written after every row
+    */
+    private final String lineSeparator;
+
+    /**
+     * creates a writer that ends every row with the line separator of the system
+     * @param out Writer the rows are written into
+     */
+    public CsvWriter(Writer out) {
+        this(out, System.lineSeparator());
+    }
+
+    /**
+     * @param out Writer the rows are written into
+     * @param lineSeparator written after every row eg. "\n"
+     */
+    public CsvWriter(Writer out, String lineSeparator) {
+        this.out = out;
+        this.lineSeparator = lineSeparator;
+    }
+
+    /**
+     * writes the fields separated by commas and ends the row
+     * @param row fields of the row
+     * @return number of bytes the row takes in the file, line separator included
+     * @exception IOException if the Writer fails
+     */
+    public int writeRow(String... row) throws IOException {
+        int bytes = 0;
+        for (int i = 0; i < row.length; i++) {
+            if (i > 0) {
+                out.write(',');
+                bytes++;
+            }
+            out.write(row[i]);
+            bytes += byteLength(row[i]);
+        }
+        out.write(lineSeparator);
+        return bytes + lineSeparator.length();
+    }
+
+    /**
+     * writes a line that is already in csv form, eg. a row that did not change
+     * @param line line without the line separator
+     * @return number of bytes the line takes in the file, line separator included
+     * @exception IOException if the Writer fails
+     */
+    public int writeLine(String line) throws IOException {
+        out.write(line);
+        out.write(lineSeparator);
+        return byteLength(line) + lineSeparator.length();
+    }
+
+    /**
+     * @param s text to count
+     * @return number of bytes of s in CHARSET
+     */
+    private static int byteLength(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= 0x80) {
+                return s.getBytes(CHARSET).length;
+            }
+        }
+        return s.length();
+    }
+}
@@ -1,12 +1,9 @@
 
 
-import java.io.BufferedReader;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.IOException;
 import java.time.*;
 import java.util.*;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 
 /**
 * <h1>CurrentDateTime control class</h1>
@@ -21,7 +18,11 @@ public class CurrentDateTime {
 	/** 
      * file to look for students
      */
-	private static String csvFile = "STUDENT.csv";
+	private static final String csvFile = StudentDatabaseManager.STUDENTFILE;
+	/** 
+     * format of the access period dates in the csv eg. November 20 2020
+     */
+	private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MMMM d yyyy", Locale.ENGLISH);
 	
 	
     /** 
@@ -34,64 +35,38 @@ public class CurrentDateTime {
         boolean success = false;
         LocalDateTime now = LocalDateTime.now();  
 		
-		BufferedReader br = null;
-        String line = "";
-        String cvsSplitBy = ",";
+        /** 
+         * the row is read through the RowCache from the table, changes by admin drop it from the cache so they are seen immediately
+         */
+        String[] student = RowCache.get(csvFile, 2, username, () -> StorageEngine.of(csvFile).find(2, username));
 
         try {
-
-            br = new BufferedReader(new FileReader(csvFile));
-            line = br.readLine();
-           
-            while ((line = br.readLine()) != null) {
-                String[] student = line.split(cvsSplitBy);
-
-                if (line.contains(username))
+            if (student != null)
+            {
+                /** 
+                 * Convert the date and time cells to actual date time format, each cell is parsed on its own
+                 */
+                LocalDateTime startPeriod = LocalDateTime.of(LocalDate.parse(student[7], DATE_FORMAT), LocalTime.parse(student[8]));
+                LocalDateTime endPeriod = LocalDateTime.of(LocalDate.parse(student[9], DATE_FORMAT), LocalTime.parse(student[10]));
+                
+                if (now.isAfter(startPeriod) && now.isBefore(endPeriod))
                 {
-                	String startDateTime = student[7] + ", " + student[8];
-                	String endDateTime = student[9] + ", " + student[10];
-                	
-                    
-                    /** 
-                     * Convert String startDateTime and endDateTime to actual date time format
-                     */
-                    DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMMM d yyyy, HH:mm", Locale.ENGLISH);
-                    LocalDateTime startPeriod = LocalDateTime.parse(startDateTime, formatter);
-                    
-                    formatter = DateTimeFormatter.ofPattern("MMMM d yyyy, HH:mm", Locale.ENGLISH);
-                    LocalDateTime endPeriod = LocalDateTime.parse(endDateTime, formatter);
-                    
-                    if (now.isAfter(startPeriod) && now.isBefore(endPeriod))
-                    {
-                        System.out.println("\n"+username + " ACCESS GRANTED");
-                        success= true;
-                    }
-                    else
-                    {
-                        System.out.println("\n"+username + " ACCESS DENIED. Please access this during your allocated period.");
-                        
-                    }
+                    System.out.println("\n"+username + " ACCESS GRANTED");
+                    success= true;
+                }
+                else
+                {
+                    System.out.println("\n"+username + " ACCESS DENIED. Please access this during your allocated period.");
                     
                 }
-
+                
             }
 
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-        } catch (IOException e) {
+        } catch (DateTimeParseException e) {
             e.printStackTrace();
         } catch (ArrayIndexOutOfBoundsException e) {
             e.printStackTrace();
         }
-        finally {
-            if (br != null) {
-                try {
-                    br.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
-        }
         return success;
 	}
 
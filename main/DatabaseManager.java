@@ -1,16 +1,8 @@
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.util.logging.Logger;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 /**
@@ -21,6 +13,10 @@ import java.util.logging.Level;
 * <p>
 * contains methods such as adding course, dropping course, updates course
 * links to course database manager to update course csv file
+* <p>
+* safe to use from several sessions at once: every change by key locks only the row it changes
+* (through the row locks of CsvTable), so changes to different students or courses run in parallel
+* and changes to the same row are serialized
 * @author  Joelle Thng, Wang Anyi
 * @version 1.0
 * @since   2020-25-11
@@ -35,15 +31,28 @@ public abstract class DatabaseManager {
     /** 
     * file of super class
     */
-    private String FILE;
+    private final String FILE;
+    /** 
+    * first column of the access period (Start date, Start time, End date, End time)
+    */
+    protected static final int ACCESS_PERIOD_COLUMN = 7;
+    /** 
+    * first column of the course slots (Course 1, Index 1 ... Course 7, Index 7)
+    */
+    protected static final int FIRST_SLOT_COLUMN = 11;
+    /** 
+    * number of course slots, every slot is a courseID and course index pair
+    */
+    protected static final int SLOTS = 7;
     /** 
-    * temporary file to store data 
+    * number of cells in a row that has course slots (slots, Total AU and the trailing comma)
     */
-    private static String tempData = "temp.csv";
+    protected static final int SLOT_ROW_SIZE = FIRST_SLOT_COLUMN + 2 * SLOTS + 2;
     /** 
     * columns that are specific to different instance of FILE
+    * kept per instance, every subclass has its own columns
     */
-    private static List<String> COLUMNS;
+    private final List<String> COLUMNS;
 
     /** 
     * creates instance of superclass database manager using the file path and columns of child classes
@@ -64,38 +73,41 @@ public abstract class DatabaseManager {
     }
 
     
+    /** 
+     * @return StorageEngine of the file in this instance, the in-memory CsvTable unless stars.storage.url is set
+     */
+    protected StorageEngine getTable(){
+        return StorageEngine.of(FILE);
+    }
+
+    
+    /** 
+     * writes all changes of this instance's file to disk, should be called before the program exits
+     */
+    public void flush(){
+        try {
+            getTable().flush();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not write "+ FILE +" (DatabaseManager -> flush)", e);
+        }
+    }
+
+    
     /** 
      * gets a String[] of data that is identified by the column number anf the unique identifier of "lookingFor"
+     * uses the primary-key index of the table if there is one over the column
+     * goes through the RowCache, so a repeated lookup of the same row does not read the file again
      * @param fileName file path to read
      * @param col column number to look for unique identifier eg. Username
      * @param lookingFor item to look for eg. "Hermione"
      * @return String[] for the entire row
-     * @exception IOException if error closing/opening file
      */
     public static String[] getRow(String fileName, int col, String lookingFor) {
-        BufferedReader fileReader = null;
-        String line = "";
-        try {
-            fileReader = new BufferedReader(new FileReader(fileName));
-            while ((line = fileReader.readLine()) != null) {
-                String[] tokens = line.split(",",-1); 
-                if (tokens[col].equals(lookingFor)) { 
-                    fileReader.close();
-                    return tokens;
-                }
-            }
-            
-        } catch (IOException e) {
-            logger.log(Level.FINE, "Could not open/find "+ fileName +" to get row (DatabaseManager -> getRow)", e);
-        } finally{
-            try {
-                fileReader.close();
-            } catch (IOException e) {
-                logger.log(Level.FINE, "Could not close "+ fileName +"(DatabaseManager -> getRow)", e);
-            }
+        String[] row = RowCache.get(fileName, col, lookingFor, () -> StorageEngine.of(fileName).find(col, lookingFor));
+        if (row == null) {
+            System.out.println("could not find the entry you were looking for");
         }
-        System.out.println("could not find the entry you were looking for");
-        return null;
+        return row;
     }
 
     
@@ -105,137 +117,47 @@ public abstract class DatabaseManager {
      * @param identifier item to look for eg. "DSAI"
      * @param uniqueColumn column number where the identifier can be found 
      * @return boolean true if access period can be changed, false otherwise 
-     * @exception IOException if error closing/opening file
      */
     public boolean updateRow(String replace, String identifier, int uniqueColumn) {
-        boolean success = false;
-        File oldFile = new File(FILE);
-        File newFile = new File(tempData);
-        PrintWriter pw = null;
-        BufferedReader fileReader = null;
-
-        try (FileWriter fw = new FileWriter(tempData, true); 
-            BufferedWriter bw = new BufferedWriter(fw);){
-            pw = new PrintWriter(bw);
-
-            String line = "";
-            fileReader = new BufferedReader(new FileReader(FILE));
-
-            while ((line = fileReader.readLine()) != null) { 
-                StringBuilder newLine = new StringBuilder();
-                String[] tokens = line.split(",",-1);
-                if (tokens[uniqueColumn].equals(identifier)) { 
-                    for (int i = 0; i < 7; i++) { 
-                        newLine.append(tokens[i]);
-                        newLine.append(",");
-                    }
-                    newLine.append(replace);
-                    for (int i = 11; i < tokens.length; i++) {
-                        newLine.append(tokens[i]);
-                        newLine.append(",");
-                    }
-                    newLine.append(" ");
-                    pw.println(newLine);
-                    success = true;
-                } else { 
-                    for (int i = 0; i < tokens.length; i++) { 
-                        newLine.append(tokens[i]);
-                        newLine.append(",");
-                    }
-                    newLine.append(" ");
-                    pw.println(newLine);
-                }
-            }
+        CsvTokenizer fields = new CsvTokenizer().reset(replace);
+        int size = fields.size();
+        while (size > 0 && fields.fieldEquals(size - 1, "")) { // trailing empty values are not written
+            size--;
+        }
+        String[] values = new String[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = fields.field(i);
+        }
+        return updateRow(values, identifier, uniqueColumn);
+    }
 
-        } catch (Exception e) {
-            logger.log(Level.FINE, "Could not open/find "+ FILE +" to read/write (DatabaseManager -> updateRow)", e);
-        }finally{
-            if(pw!=null){
-                pw.flush();
-                pw.close();
-            }
-            File name = new File(FILE); 
-            oldFile.delete();
-            newFile.renameTo(name);
-            try {
-                fileReader.close();
-            } catch (IOException e) {
-                logger.log(Level.FINE, "Could not close "+ FILE +"(DatabaseManager -> updateRow)", e);
-        
-            }
-            
-        }return success;
+    
+    /** 
+     * changes the access period of the students if they are in a particular specialisation
+     * publishes an AccessPeriodChanged event if any row changed
+     * @param values access period to write eg. {"November 20 2020", "09:30", "November 27 2020", "18:00"}
+     * @param identifier item to look for eg. "DSAI"
+     * @param uniqueColumn column number where the identifier can be found 
+     * @return boolean true if access period can be changed, false otherwise 
+     */
+    public boolean updateRow(String[] values, String identifier, int uniqueColumn) {
+        boolean changed = getTable().updateColumns(uniqueColumn, identifier, ACCESS_PERIOD_COLUMN, values) > 0;
+        if (changed) {
+            ChangeFeed.publish(new ChangeEvent.AccessPeriodChanged(identifier, values));
+        }
+        return changed;
     }
 
     
     /** 
-     * appends entry to csv file
+     * appends entry to the first empty course slot of a row (used for adding courseID and course index)
      * @param toAdd data to add to csv row
      * @param uniqueColumn column number where the identifier can be found 
      * @param identifier item to look for eg. "DSAI"
-     * @exception IOException if error closing/opening file
      */
     public void appendEntry(String toAdd, int uniqueColumn, String identifier) {
-
-        File oldFile = new File(FILE);
-        File newFile = new File(tempData);
-        PrintWriter pw= null;
-        BufferedReader fileReader= null;
-        
-
-        try(FileWriter fw = new FileWriter(tempData, true);
-            BufferedWriter bw = new BufferedWriter(fw);){
-            
-            pw = new PrintWriter(bw);
-
-            String line;
-            fileReader = new BufferedReader(new FileReader(FILE));
-            while ((line = fileReader.readLine()) != null) {
-                String[] tokens = line.split(",",-1);
-                if (tokens[uniqueColumn].equals(identifier)) { 
-                    StringBuilder newLine = new StringBuilder();
-                    int i=0;
-                    while(!tokens[i].equals("")){
-                        newLine.append(tokens[i]);
-                        newLine.append(",");
-                        i++;
-                    }
-                    newLine.append(toAdd);
-                    for(int j = i+1; j<25; j++){
-                        newLine.append(",");
-                    }
-                    newLine.append(tokens[25]+",");
-                    pw.println(newLine);
-                }
-                else{ 
-                    StringBuilder newLine = new StringBuilder();
-                    for(int i=0; i<tokens.length; i++){
-                        newLine.append(tokens[i]);
-                        newLine.append(",");
-                    }
-                    pw.println(newLine);
-                }
-            }
-            
-        }
-        catch(Exception e){
-            logger.log(Level.FINE, "Could not open/find "+ FILE +" to read/write (DatabaseManager -> addEntry)", e);
-        }finally{
-            if(pw!=null){
-                pw.flush();
-                pw.close();
-            }
-            File name = new File(FILE); 
-            oldFile.delete();
-            newFile.renameTo(name);
-            try {
-                fileReader.close();
-            } catch (IOException e) {
-                logger.log(Level.FINE, "Could not close "+ FILE +"(DatabaseManager -> addEntry)", e);
-        
-            }
-            
-        }
+        String[] values = new CsvTokenizer().reset(toAdd).toArray();
+        getTable().addPair(uniqueColumn, identifier, values);
     }
 
 
@@ -247,48 +169,14 @@ public abstract class DatabaseManager {
      * @param identify2 identifier 2
      * @param information data to replace csv data with
      * @return true if data is replaces successfully, false otherwise
-     * @exception IOException if error closing/opening file
      */
     protected boolean replaceInformationCSV(int uniqueColumn, String identify1, String identify2, String information) { 
-        boolean result = false;
-        FileWriter fw = null;
-        ArrayList<String[]> reWrite = new ArrayList<String[]>();
-        String line = "";
-        try(BufferedReader fileReader = new BufferedReader(new FileReader(FILE))) {
-            while ((line = fileReader.readLine()) != null) {
-                String[] tokens = line.split(",", -1);
-                List<String> token = Arrays.asList(tokens);
-                if (token.contains(identify1) && token.contains(identify2)) { 
-                    tokens[uniqueColumn] = information;
-                    reWrite.add(tokens);
-                    result = true;
-                } else reWrite.add(tokens);
-            }
-        } catch (IOException e) {
-            logger.log(Level.FINE, "Could not find file "+ FILE +" to read (DatabaseManager -> replaceInformationinCSV)", e);
-        }
-        try {
-            fw = new FileWriter(FILE);
-            for (String[] l : reWrite) {
-                String s = String.join(",",l);
-                try {
-                    fw.append(s+"\n");
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }
-        } catch (IOException e) {
-            logger.log(Level.FINE, "Could not find file "+ FILE +" to write (DatabaseManager -> replaceInformationinCSV)", e);
-        } 
-        finally{
-            try {
-                fw.flush();
-                fw.close();
-            } catch (IOException e) {
-                logger.log(Level.FINE, "Could not close file "+ FILE +"(DatabaseManager -> replaceInformationinCSV)", e);
-            }
-        }
-        return result;
+        int changed = getTable().update(tokens -> containsBoth(tokens, identify1, identify2), tokens -> {
+            tokens = padRow(tokens, uniqueColumn + 2);
+            tokens[uniqueColumn] = information;
+            return tokens;
+        });
+        return changed > 0;
     }
 
     
@@ -299,187 +187,158 @@ public abstract class DatabaseManager {
      * @param information1 data to replace identify1 in csv with
      * @param information2 data to replace identify2 in csv with
      * @return true if data is replaces successfully, false otherwise
-     * @exception IOException if error closing/opening file
      */
     protected boolean replaceInformationCSV(String identify1, String identify2, String information1, String information2) { 
-        boolean result = false;
-        FileWriter fw = null;
-        ArrayList<String[]> reWrite = new ArrayList<String[]>();
-        String line = "";
-        try(BufferedReader fileReader = new BufferedReader(new FileReader(FILE))) {
-            while ((line = fileReader.readLine()) != null) {
-                String[] tokens = line.split(",", -1);
-                List<String> token = Arrays.asList(tokens);
-                if (token.contains(identify1) && token.contains(identify2)) { 
-                    tokens[token.indexOf(identify1)] = information1;
-                    tokens[token.indexOf(identify2)] = information2;
-                    reWrite.add(tokens);
-                    result = true;
-                } else reWrite.add(tokens);
-            }
-        } catch (IOException e) {
-            logger.log(Level.FINE, "Could not find file "+ FILE +" to read (DatabaseManager -> replaceInformationinCSV)", e);
-        }
-        try {
-            fw = new FileWriter(FILE);
-            for (String[] l : reWrite) {
-                String s = String.join(",",l);
-                try {
-                    fw.append(s+"\n");
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }
-        } catch (IOException e) {
-            logger.log(Level.FINE, "Could not find file "+ FILE +" to write (DatabaseManager -> replaceInformationinCSV)", e);
-        } 
-        finally{
-            try {
-                fw.flush();
-                fw.close();
-            } catch (IOException e) {
-                logger.log(Level.FINE, "Could not close file "+ FILE +"(DatabaseManager -> replaceInformationinCSV)", e);
-            }
-        }
-        return result;
+        int changed = getTable().update(tokens -> containsBoth(tokens, identify1, identify2), tokens -> {
+            tokens[indexOf(tokens, identify1)] = information1;
+            tokens[indexOf(tokens, identify2)] = information2;
+            return tokens;
+        });
+        return changed > 0;
     }
 
 
     /** 
      * removes 2 consecutive values in csv (used for removing courseID and course index)
+     * the remaining pairs are moved forward so there are no gaps
      * @param uniqueColumn column number where the identifier can be found  
      * @param identifier item to look for eg. "DSAI"
      * @param valueToRemove data to remove in csv
-     * @exception IOException if error closing/opening file
      */
     public void removeRow(int uniqueColumn, String identifier, String valueToRemove){
-        File oldFile = new File(FILE);
-        File newFile = new File(tempData);
-        PrintWriter pw=null;
-        BufferedReader fileReader=null;
+        getTable().removePair(uniqueColumn, identifier, valueToRemove);
+    }
 
+ 
+    /** 
+     * adds entry into the csv, inserted at the last row
+     * @param rowToAdd String of information to add
+     */
+    public void addEntry(String rowToAdd){
+        getTable().append(padRow(new CsvTokenizer().reset(rowToAdd).toArray(), COLUMNS.size() + 1));
+    }
 
-        try{
-            FileWriter fw = new FileWriter(tempData, true);
-            BufferedWriter bw = new BufferedWriter(fw);
-            pw = new PrintWriter(bw);
+    
+    /** 
+     * writes the values into the first empty course slot of a row
+     * @param tokens row of the csv
+     * @param values values to write eg. {"CZ2002", "10002"}
+     * @return the changed row
+     */
+    protected static String[] addToSlot(String[] tokens, String... values) {
+        tokens = padRow(tokens, SLOT_ROW_SIZE);
+        int last = FIRST_SLOT_COLUMN + 2 * SLOTS;
+        int i = FIRST_SLOT_COLUMN;
+        while (i < last && !tokens[i].equals("")) {
+            i += 2;
+        }
+        for (int j = 0; j < values.length && i + j < last; j++) {
+            tokens[i + j] = values[j];
+        }
+        return tokens;
+    }
 
-            String line;
-            fileReader = new BufferedReader(new FileReader(FILE));
-            while ((line = fileReader.readLine()) != null) {
-                String[] tokens = line.split(",",-1);
-                if (tokens[uniqueColumn].equals(identifier)) { 
-                    StringBuilder newLine = new StringBuilder();
-                    for(int i=0; i<11; i++){ 
-                        newLine.append(tokens[i]);
-                        newLine.append(",");
-                    }
-                    for(int i=11; i<25; i+=2){
-                        if(!tokens[i].equals(valueToRemove)){ 
-                            newLine.append(tokens[i] + "," + tokens[i+1]+ ",");
-                        }
-                    }
-                    newLine.append("," + "," + tokens[25]);
-                    pw.println(newLine);
-                }
-                else{ 
-                    StringBuilder newLine = new StringBuilder();
-                    for(int i=0; i<tokens.length; i++){
-                        newLine.append(tokens[i]);
-                        newLine.append(",");
-                    }
-                    pw.println(newLine);
-                }
+    
+    /** 
+     * removes the course slot that starts with valueToRemove and moves the remaining slots forward
+     * @param tokens row of the csv
+     * @param valueToRemove first value of the slot to remove eg. "CZ2002"
+     * @return the changed row
+     */
+    protected static String[] removeFromSlot(String[] tokens, String valueToRemove) {
+        tokens = padRow(tokens, SLOT_ROW_SIZE);
+        int last = FIRST_SLOT_COLUMN + 2 * SLOTS;
+        int write = FIRST_SLOT_COLUMN;
+        for (int i = FIRST_SLOT_COLUMN; i < last; i += 2) {
+            if (!tokens[i].equals(valueToRemove)) {
+                tokens[write] = tokens[i];
+                tokens[write + 1] = tokens[i + 1];
+                write += 2;
             }
-            
         }
-        catch(IOException e){
-            logger.log(Level.FINE, "Error changing student file(DatabaseManager)", e);
-        }finally{
-            if(pw!=null){
-                pw.flush();
-                pw.close();
-            }
-            
-            File name = new File(FILE); 
-            oldFile.delete();
-            newFile.renameTo(name);
-            if(fileReader!=null){
-                try {
-                    fileReader.close();
-                } catch (IOException e) {
-                    logger.log(Level.FINE, "Error closing file(DatabaseManager -> removeRow)", e);
-                }
-            }
+        for (; write < last; write++) {
+            tokens[write] = "";
         }
+        return tokens;
     }
 
- 
+    
     /** 
-     * swaps two consecutive values with another 2 consecutive values
-     * used to swap student courseID and course index
-    * @param uniqueColumn column number where the identifier can be found  
-    * @param identifier1 row 1 where the swapping occurs
-    * @param identifier2 row 2 where the swapping occurs
-    * @param dataToChange1 data to change in csv eg. "987655" --&gt; course index
-    * @param dataToChange2 data to change in csv eg. "127834"--&gt; course index
-    * @param courseID courseID of course to swap
-    * @exception Exception if interrupted execution for timeunit
-    */
-    protected void swapValuesCSV(int uniqueColumn, String identifier1, String identifier2, String dataToChange1, String dataToChange2, String courseID) { // write information to csv
-      
-        try {
-            List<String> temp = Arrays.asList(courseID, dataToChange1);
-            String index1 = String.join(",", temp); 
-            List<String> tempList = Arrays.asList(courseID, dataToChange2);
-            String index2 = String.join(",", tempList); 
-            
-            removeRow(uniqueColumn, identifier1, courseID); 
-            removeRow(uniqueColumn, identifier2, courseID); 
-            TimeUnit.SECONDS.sleep(1);
-            appendEntry(index2, uniqueColumn, identifier1); 
-            appendEntry(index1, uniqueColumn, identifier2); 
-            TimeUnit.SECONDS.sleep(1);
-        } catch (Exception e) {
-            logger.log(Level.FINE, "Error swapping values in csv (DatabaseManager -> swapValuesCSV)", e);
-
+     * replaces the second value of the course slot that starts with value
+     * @param tokens row of the csv
+     * @param value first value of the slot eg. "CZ2002"
+     * @param newValue new second value of the slot eg. "10002"
+     * @return the changed row
+     * @exception IllegalStateException if the row has no such slot
+     */
+    protected static String[] replaceSlot(String[] tokens, String value, String newValue) {
+        int slot = findSlot(tokens, value);
+        if (slot == -1) {
+            throw new IllegalStateException("no slot " + value + " in row " + tokens[0]);
         }
-        
+        tokens[slot + 1] = newValue;
+        return tokens;
     }
 
     
     /** 
-     * adds entry into the csv, inserted at the last row
-     * @param rowToAdd String of information to add
-     * @exception IOException if error closing/opening file
+     * finds the course slot that starts with value
+     * @param tokens row of the csv
+     * @param value first value of the slot eg. "CZ2002"
+     * @return column of the slot, -1 if the row has no such slot
      */
-    public void addEntry(String rowToAdd){
-        File file = new File(FILE);
-        PrintWriter pw = null;
+    protected static int findSlot(String[] tokens, String value) {
+        int last = Math.min(FIRST_SLOT_COLUMN + 2 * SLOTS, tokens.length - 1);
+        for (int i = FIRST_SLOT_COLUMN; i < last; i += 2) {
+            if (tokens[i].equals(value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
 
-        try(FileWriter fw = new FileWriter(file, true); 
-            BufferedWriter bw = new BufferedWriter(fw);){
-            
-            pw = new PrintWriter(bw);
+    
+    /** 
+     * checks if a row contains both identifiers
+     * @param tokens row of the csv
+     * @param identify1 identifier 1
+     * @param identify2 identifier 2
+     * @return true if both identifiers are in the row
+     */
+    protected static boolean containsBoth(String[] tokens, String identify1, String identify2) {
+        return indexOf(tokens, identify1) != -1 && indexOf(tokens, identify2) != -1;
+    }
 
-            StringBuilder newLine = new StringBuilder();
-            newLine.append("\n");
-            newLine.append(rowToAdd);
-            for (int i=rowToAdd.split(",",-1).length-1; i<COLUMNS.size(); i++){ 
-                newLine.append("");
-                newLine.append(",");
-            }
-            System.out.println(" ");
-            pw.print(newLine);
-        } catch(Exception e){
-            logger.log(Level.FINE, "Error closing file(DatabaseManager -> addEntry)", e);
-        } finally{
-            if(pw != null){
-                pw.flush();
-                pw.close();
-                
+    
+    /** 
+     * finds the first cell of a row that equals value
+     * @param tokens row of the csv
+     * @param value value to look for
+     * @return column of the cell, -1 if no cell equals value
+     */
+    protected static int indexOf(String[] tokens, String value) {
+        for (int i = 0; i < tokens.length; i++) {
+            if (tokens[i].equals(value)) {
+                return i;
             }
         }
+        return -1;
+    }
+
+    
+    /** 
+     * pads a row with empty cells so it has at least size cells
+     * @param tokens row of the csv
+     * @param size minimum number of cells
+     * @return the same row if it is long enough, otherwise a longer copy
+     */
+    protected static String[] padRow(String[] tokens, int size) {
+        if (tokens.length >= size) {
+            return tokens;
+        }
+        String[] padded = Arrays.copyOf(tokens, size);
+        Arrays.fill(padded, tokens.length, size, "");
+        return padded;
     }
 
 
@@ -0,0 +1,124 @@
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+* <h1>DurableFile</h1>
+* Crash-safe replacement of a whole file.
+* <p>
+* The new content is written into a temporary file, forced to disk with FileChannel.force,
+* and then moved over the old file with one atomic rename. At every moment either the complete old file or the
+* complete new file exists under the name, there is no window where the file is deleted but not yet replaced.
+* The directory is forced afterwards, so the rename itself survives a power loss.
+* e.g. DurableFile.replace("STUDENT.csv", "STUDENT.csv.tmp", out -&gt; out.write(bytes))
+* @version 1.0
+* @since   2020-25-11
+*/
+public class DurableFile {
+    /**
+    * creates logger instance of durable file to log exceptions and other errors
+    */
+    private static Logger logger = Logger.getLogger(DurableFile.class.getName());
+
+    /**
+    * <h1>Content</h1>
+    * writes the new content of a file
+    */
+    public interface Content {
+        /**
+         * @param out stream into the temporary file, closed by DurableFile
+         * @exception IOException if the content could not be written
+         */
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+    * <h1>BeforeMove</h1>
+    * runs once the temporary file is complete and forced, before it is moved over the file
+    * e.g. writing a Checkpoint of the new content
+    */
+    public interface BeforeMove {
+        /**
+         * @param tempName file path of the complete temporary file
+         * @exception IOException if the step failed, the file is then not replaced
+         */
+        void run(String tempName) throws IOException;
+    }
+
+    /**
+     * replaces a file with new content, crash-safe
+     * @param fileName file path of the file to replace
+     * @param tempName file path of the temporary file, must be in the same directory
+     * @param content writes the new content
+     * @exception IOException if the new content could not be written, the old file is then left as it was
+     */
+    public static void replace(String fileName, String tempName, Content content) throws IOException {
+        replace(fileName, tempName, content, null);
+    }
+
+    /**
+     * replaces a file with new content, crash-safe, running a step between writing and moving the temporary file
+     * @param fileName file path of the file to replace
+     * @param tempName file path of the temporary file, must be in the same directory
+     * @param content writes the new content
+     * @param beforeMove runs on the complete temporary file before it is moved, null for none
+     * @exception IOException if the new content could not be written, the old file is then left as it was
+     */
+    public static void replace(String fileName, String tempName, Content content, BeforeMove beforeMove) throws IOException {
+        File tempFile = new File(tempName);
+        try {
+            try (FileOutputStream out = new FileOutputStream(tempFile)) {
+                content.writeTo(out);
+                out.flush();
+                out.getChannel().force(true);
+            }
+            if (beforeMove != null) {
+                beforeMove.run(tempName);
+            }
+        } catch (IOException | RuntimeException e) {
+            tempFile.delete();
+            throw e;
+        }
+        move(tempName, fileName);
+    }
+
+    /**
+     * moves a complete temporary file over a file with one atomic rename and forces the directory
+     * @param tempName file path of the temporary file
+     * @param fileName file path of the file to replace, must be in the same directory
+     * @exception IOException if the file could not be moved, the old file is then left as it was
+     */
+    public static void move(String tempName, String fileName) throws IOException {
+        Path source = new File(tempName).toPath();
+        Path target = new File(fileName).toPath();
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        syncDirectory(target);
+    }
+
+    /**
+     * forces the directory entry of a file to disk, so a rename or a newly created file is not lost
+     * not every platform can open a directory, there the rename is left to the file system
+     * @param file file whose directory to force
+     */
+    public static void syncDirectory(Path file) {
+        Path dir = file.toAbsolutePath().getParent();
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Could not force directory " + dir + " (DurableFile -> syncDirectory)", e);
+        }
+    }
+}
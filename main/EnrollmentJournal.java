@@ -0,0 +1,669 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+* <h1>EnrollmentJournal</h1>
+* Append-only journal of every change to STUDENT.csv.
+* <p>
+* Every add, drop and swap is written as one line at the end of the journal (an O(1) append) and applied to the
+* in-memory student table. A background compactor folds the journal into STUDENT.csv by rotating the journal,
+* flushing the table and deleting the rotated file. On startup the journal (and a rotated file left behind
+* by an interrupted compaction) is replayed on top of the csv.
+* <p>
+* The other changes of students go through the journal as well: a new access period (ACCESS), a new course index or AU
+* carried over to the students of the course (one ADD per student) and a new student (NEW, the whole row).
+* As nothing else changes the table, the csv the write-behind flusher wrote at any point since the last compaction
+* is the table after some prefix of the journal. Records set absolute values (slot, Total AU, access period, row),
+* so replaying the whole journal on top of it gives the table after the last record.
+* <p>
+* add, drop and swap only return once their record is forced to disk. Records appended while a force is running
+* wait for the next one, so concurrent changes share one force of the file (group commit) instead of paying one each.
+* If the record cannot be written, or the force of its batch fails, the record is rolled back in the table and
+* add, drop and swap return false. After a failed force the journal is compacted, so the rolled back records are
+* not replayed.
+* A new student cannot be rolled back, so a NEW record is forced before it is applied.
+* e.g. ADD,U2000001C,CZ2002,10002,12 or DROP,U2000001C,CZ2002,9 or SWAP,U2000001C,U2000005E,CZ2002,10003,10002
+* or ACCESS,DSAI,November 20 2020,09:30,November 27 2020,18:00
+* <p>
+* When the table is kept in the embedded database (JdbcStorageEngine) every change is already its own committed
+* transaction, so records are only applied and not written to the journal. What is left of a journal from
+* the csv engine is still replayed into the database on startup.
+* <p>
+* settings can be changed with the system properties stars.journal.compact.ms and stars.journal.compact.records
+* @version 1.0
+* @since   2020-25-11
+*/
+public class EnrollmentJournal {
+    /**
+    * creates logger instance of enrollment journal to log exceptions and other errors
+    */
+    private static Logger logger = Logger.getLogger(EnrollmentJournal.class.getName());
+    /**
+    * how often (in milliseconds) the journal is folded into the csv
+    */
+    static final long COMPACT_INTERVAL_MS = Long.getLong("stars.journal.compact.ms", 5000L);
+    /**
+    * number of records after which the journal is folded without waiting for the interval
+    */
+    static final int COMPACT_RECORDS = Integer.getInteger("stars.journal.compact.records", 256);
+    /**
+    * record type for adding a course
+    */
+    static final String ADD = "ADD";
+    /**
+    * record type for dropping a course
+    */
+    static final String DROP = "DROP";
+    /**
+    * record type for two students swapping their index of a course
+    */
+    static final String SWAP = "SWAP";
+    /**
+    * record type for a new access period of every student in a course of study
+    */
+    static final String ACCESS = "ACCESS";
+    /**
+    * record type for a new student, or a student whose whole row is written again
+    */
+    static final String NEW = "NEW";
+    /**
+    * column of the course of study, ACCESS records are keyed by it
+    */
+    private static final int COURSE_OF_STUDY_COLUMN = 5;
+    /**
+    * column of the matriculation number, records are keyed by it
+    */
+    private static final int MATRIC_COLUMN = 6;
+    /**
+    * column of the Total AU
+    */
+    private static final int AU_COLUMN = DatabaseManager.FIRST_SLOT_COLUMN + 2 * DatabaseManager.SLOTS;
+
+    /**
+    * background thread that compacts the journal
+    */
+    private final ScheduledExecutorService compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "enrollment-journal-compactor");
+        t.setDaemon(true);
+        return t;
+    });
+    /**
+    * table the journal belongs to
+    */
+    private final StorageEngine table;
+    /**
+    * true if the table commits every change itself, records are then not written to the journal
+    */
+    private final boolean writeThrough;
+    /**
+    * journal file
+    */
+    private final File journalFile;
+    /**
+    * journal file while it is being compacted
+    */
+    private final File rotatedFile;
+    /**
+    * open journalFile, null until the first record after a compaction
+    */
+    private Segment segment;
+    /**
+    * line of the record being written
+    */
+    private final StringWriter line = new StringWriter();
+    /**
+    * writes a record into line
+    */
+    private final CsvWriter csvWriter = new CsvWriter(line);
+    /**
+    * records written since the last force, they are forced together, guarded by syncLock
+    */
+    private Batch current = new Batch();
+    /**
+    * set while one thread is forcing a batch for everyone, guarded by syncLock
+    */
+    private boolean forcing = false;
+    /**
+    * lock of the group commit, never held while waiting for the journal lock
+    */
+    private final Object syncLock = new Object();
+    /**
+    * number of records written since the last compaction
+    */
+    private int records = 0;
+    /**
+    * set while an early compaction is waiting in the compactor queue
+    */
+    private boolean compactQueued = false;
+
+    /**
+     * opens the journal of a table, replays what is left from the last run and starts the compactor
+     * @param table table the journal belongs to
+     * @param journalName file path of the journal eg. "STUDENT.journal"
+     */
+    public EnrollmentJournal(StorageEngine table, String journalName) {
+        this.table = table;
+        this.writeThrough = !(table instanceof CsvTable);
+        this.journalFile = new File(journalName);
+        this.rotatedFile = new File(journalName + ".old");
+        replay(rotatedFile);
+        replay(journalFile);
+        compactQuietly();
+        compactor.scheduleWithFixedDelay(this::compactQuietly, COMPACT_INTERVAL_MS, COMPACT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::compactQuietly, "enrollment-journal-shutdown"));
+    }
+
+    /**
+     * records that a student added a course
+     * @param matricNo matriculation number of the student
+     * @param courseID course ID of the course added
+     * @param courseIndex course index of the course added
+     * @param totalAU Total AU of the student after adding
+     * @return true if the record was applied and is durable
+     */
+    public boolean add(String matricNo, String courseID, int courseIndex, int totalAU) {
+        return append(ADD, matricNo, courseID, Integer.toString(courseIndex), Integer.toString(totalAU));
+    }
+
+    /**
+     * records that a student dropped a course
+     * @param matricNo matriculation number of the student
+     * @param courseID course ID of the course dropped
+     * @param totalAU Total AU of the student after dropping
+     * @return true if the record was applied and is durable
+     */
+    public boolean drop(String matricNo, String courseID, int totalAU) {
+        return append(DROP, matricNo, courseID, Integer.toString(totalAU));
+    }
+
+    /**
+     * records that two students swapped their index of a course, both rows change in one transaction
+     * @param matricNo matriculation number of the first student
+     * @param peerMatricNo matriculation number of the second student
+     * @param courseID course ID of the course swapped
+     * @param newIndex course index the first student gets
+     * @param peerNewIndex course index the second student gets
+     * @return true if the swap was applied and is durable, false if one of the students does not take the course
+     *          or the swap could not be written
+     */
+    public boolean swap(String matricNo, String peerMatricNo, String courseID, int newIndex, int peerNewIndex) {
+        return append(SWAP, matricNo, peerMatricNo, courseID, Integer.toString(newIndex), Integer.toString(peerNewIndex));
+    }
+
+    /**
+     * records a new access period of every student in a course of study
+     * @param courseOfStudy course of study eg. "DSAI"
+     * @param period Start date, Start time, End date and End time eg. {"November 20 2020", "09:30", "November 27 2020", "18:00"}
+     * @return true if a student was changed and the record is durable
+     */
+    public boolean access(String courseOfStudy, String... period) {
+        String[] record = new String[2 + period.length];
+        record[0] = ACCESS;
+        record[1] = courseOfStudy;
+        System.arraycopy(period, 0, record, 2, period.length);
+        return append(record);
+    }
+
+    /**
+     * carries a new index or AU of a course over to every student who takes it at the old index
+     * the students are found and written as one ADD record each with their new Total AU, in one batch
+     * @param courseID course ID eg. "CZ2002"
+     * @param oldIndex course index before the update
+     * @param newIndex course index after the update
+     * @param oldAU AU of the course before the update
+     * @param newAU AU of the course after the update
+     * @return matriculation numbers of the students changed, null if the change could not be written
+     */
+    public List<String> reindex(String courseID, int oldIndex, int newIndex, int oldAU, int newAU) {
+        String oldIndexStr = Integer.toString(oldIndex);
+        List<String> changed = new ArrayList<String>();
+        boolean saved = append(() -> {
+            List<String[]> found = new ArrayList<String[]>();
+            for (String[] row : table.rows()) {
+                int slot = DatabaseManager.findSlot(row, courseID);
+                if (slot != -1 && row[slot + 1].equals(oldIndexStr)) {
+                    int totalAU = row.length <= AU_COLUMN || row[AU_COLUMN].isEmpty() ? 0 : Integer.parseInt(row[AU_COLUMN]);
+                    found.add(new String[] { ADD, row[MATRIC_COLUMN], courseID, Integer.toString(newIndex),
+                            Integer.toString(totalAU - oldAU + newAU) });
+                    changed.add(row[MATRIC_COLUMN]);
+                }
+            }
+            return found;
+        });
+        return saved ? changed : null;
+    }
+
+    /**
+     * records a new student, the row replaces the row with the same matriculation number if there is one
+     * the record is forced before the row is added, as an added row cannot be rolled back
+     * @param row whole row of the student
+     * @return true if the student was added and the record is durable
+     */
+    public boolean insert(String[] row) {
+        String[] record = new String[1 + row.length];
+        record[0] = NEW;
+        System.arraycopy(row, 0, record, 1, row.length);
+        synchronized (this) {
+            if (!writeThrough) {
+                long size = -1;
+                try {
+                    size = write(Collections.singletonList(record));
+                    segment.file.getFD().sync();
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "Could not append " + String.join(",", record) + " to " + journalFile
+                            + " (EnrollmentJournal -> insert)", e);
+                    truncate(size);
+                    return false;
+                }
+                records++;
+            }
+            return apply(record, null);
+        }
+    }
+
+    /**
+     * applies a record to the table and appends it to the journal
+     * @param record fields of one line of the journal
+     * @return true if the record was applied and is durable
+     */
+    private boolean append(String... record) {
+        return append(() -> Collections.singletonList(record));
+    }
+
+    /**
+     * applies records to the table and appends them to the journal, they are durable or rolled back together
+     * records that could not be applied are not written, and records that could not be written are rolled back
+     * returns once the records are durable
+     * @param build builds the records, called with the journal lock held so no other record changes the table meanwhile
+     * @return true if every record was applied and is durable
+     */
+    private boolean append(Supplier<List<String[]>> build) {
+        Batch batch;
+        synchronized (this) {
+            List<String[]> toWrite = build.get();
+            List<Map<String, String[][]>> images = new ArrayList<Map<String, String[][]>>();
+            for (String[] record : toWrite) {
+                Map<String, String[][]> applied = new LinkedHashMap<String, String[][]>();
+                if (!apply(record, applied)) {
+                    logger.log(Level.FINE, "Could not apply journal record " + String.join(",", record));
+                    rollBack(images);
+                    return false;
+                }
+                images.add(applied);
+            }
+            if (writeThrough || toWrite.isEmpty()) {
+                return true;
+            }
+            try {
+                write(toWrite);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Could not append to " + journalFile + ", rolled back " + toWrite.size()
+                        + " records (EnrollmentJournal -> append)", e);
+                rollBack(images);
+                return false;
+            }
+            records += toWrite.size();
+            if (records >= COMPACT_RECORDS && !compactQueued) {
+                compactQueued = true;
+                compactor.execute(this::compactQuietly);
+            }
+            synchronized (syncLock) {
+                batch = current;
+                batch.segment = segment;
+                batch.images.addAll(images);
+            }
+        }
+        return awaitDurable(batch);
+    }
+
+    /**
+     * writes records at the end of the journal in one write, records that are only partly written are cut off again
+     * called with the journal lock held
+     * @param toWrite records, the fields of one line of the journal each
+     * @return length of the journal before the records
+     * @exception IOException if the journal could not be opened or written
+     */
+    private long write(List<String[]> toWrite) throws IOException {
+        if (segment == null) {
+            segment = new Segment(new RandomAccessFile(journalFile, "rw"));
+        }
+        RandomAccessFile file = segment.file;
+        line.getBuffer().setLength(0);
+        for (String[] record : toWrite) {
+            csvWriter.writeRow(record);
+        }
+        ByteBuffer bytes = Charset.defaultCharset().encode(CharBuffer.wrap(line.getBuffer()));
+        long size = file.length();
+        try {
+            file.seek(size);
+            file.write(bytes.array(), bytes.arrayOffset(), bytes.remaining());
+        } catch (IOException e) {
+            truncate(size);
+            throw e;
+        }
+        return size;
+    }
+
+    /**
+     * cuts records off the end of the journal again, errors are only logged
+     * called with the journal lock held
+     * @param size length of the journal before the records, -1 if nothing was written
+     */
+    private void truncate(long size) {
+        if (size < 0 || segment == null) {
+            return;
+        }
+        try {
+            segment.file.setLength(size);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not cut records off " + journalFile + " (EnrollmentJournal -> truncate)", e);
+        }
+    }
+
+    /**
+     * waits until the batch of a record is forced to disk
+     * the first waiting thread forces the batch for every record in it, records written meanwhile go into the next batch
+     * @param batch batch of the record
+     * @return true if the batch is durable, false if its force failed and its records were rolled back
+     */
+    private boolean awaitDurable(Batch batch) {
+        boolean interrupted = false;
+        try {
+            synchronized (syncLock) {
+                while (!batch.done && forcing) {
+                    try {
+                        syncLock.wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true; // the record is written, only its batch can tell if it is durable
+                    }
+                }
+                if (batch.done) {
+                    return batch.durable;
+                }
+                forcing = true;
+                current = new Batch(); // not done and nobody forcing, so batch is the current one
+            }
+            boolean durable = force(batch);
+            if (!durable) {
+                synchronized (this) {
+                    rollBack(batch.images);
+                }
+                compactor.execute(this::compactQuietly); // drops the rolled back records from the journal
+            }
+            synchronized (syncLock) {
+                forcing = false;
+                batch.done = true;
+                batch.durable = durable;
+                syncLock.notifyAll();
+            }
+            return durable;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * forces the file of a batch
+     * a RandomAccessFile is used rather than a FileChannel, as an interrupt would close the channel under every batch
+     * @param batch batch to force
+     * @return true if the records of the batch are on disk
+     */
+    private boolean force(Batch batch) {
+        try {
+            batch.segment.file.getFD().sync();
+            return true;
+        } catch (IOException e) {
+            if (batch.segment.forcedOnClose) {
+                return true; // compact() forced the records before closing the file
+            }
+            logger.log(Level.WARNING, "Could not force " + journalFile + ", rolling back " + batch.images.size()
+                    + " records (EnrollmentJournal -> awaitDurable)", e);
+            return false;
+        }
+    }
+
+    /**
+     * puts the rows of records back as they were before the records, the last record first
+     * a row that changed again since its record is left as it is
+     * called with the journal lock held
+     * @param images row images of every record, by matriculation number: {before, after}
+     */
+    private void rollBack(List<Map<String, String[][]>> images) {
+        for (int r = images.size() - 1; r >= 0; r--) {
+            for (Map.Entry<String, String[][]> image : images.get(r).entrySet()) {
+                String[] before = image.getValue()[0];
+                String[] after = image.getValue()[1];
+                boolean[] restored = { false };
+                table.update(MATRIC_COLUMN, image.getKey(), tokens -> {
+                    restored[0] = Arrays.equals(tokens, after);
+                    return restored[0] ? before.clone() : tokens;
+                });
+                if (!restored[0]) {
+                    logger.log(Level.SEVERE, "Could not roll back row " + image.getKey() + " of " + table.getFILE()
+                            + ", it changed again (EnrollmentJournal -> rollBack)");
+                }
+            }
+        }
+    }
+
+    /**
+     * applies one record to the in-memory table
+     * @param r fields of one line of the journal
+     * @param images collects the rows the record changed, as they were before and after it, null if not needed
+     * @return true if the record changed the table
+     */
+    private boolean apply(String[] r, Map<String, String[][]> images) {
+        if (r[0].equals(ADD) && r.length == 5) {
+            return table.update(MATRIC_COLUMN, r[1], imaged(images, tokens -> {
+                int slot = DatabaseManager.findSlot(tokens, r[2]);
+                if (slot == -1) {
+                    tokens = DatabaseManager.addToSlot(tokens, r[2], r[3]);
+                } else {
+                    tokens[slot + 1] = r[3];
+                }
+                tokens[AU_COLUMN] = r[4];
+                return tokens;
+            })) > 0;
+        } else if (r[0].equals(DROP) && r.length == 4) {
+            return table.update(MATRIC_COLUMN, r[1], imaged(images, tokens -> {
+                tokens = DatabaseManager.removeFromSlot(tokens, r[2]);
+                tokens[AU_COLUMN] = r[3];
+                return tokens;
+            })) > 0;
+        } else if (r[0].equals(SWAP) && r.length == 6) {
+            boolean swapped = table.begin()
+                    .edit(MATRIC_COLUMN, r[1], imaged(images, tokens -> DatabaseManager.replaceSlot(tokens, r[3], r[4])))
+                    .edit(MATRIC_COLUMN, r[2], imaged(images, tokens -> DatabaseManager.replaceSlot(tokens, r[3], r[5])))
+                    .commit();
+            if (!swapped && images != null) {
+                images.clear(); // the transaction was rolled back
+            }
+            return swapped;
+        } else if (r[0].equals(ACCESS) && r.length > 2) {
+            String[] period = Arrays.copyOfRange(r, 2, r.length);
+            return table.update(COURSE_OF_STUDY_COLUMN, r[1], imaged(images, tokens -> {
+                tokens = DatabaseManager.padRow(tokens, DatabaseManager.ACCESS_PERIOD_COLUMN + period.length);
+                System.arraycopy(period, 0, tokens, DatabaseManager.ACCESS_PERIOD_COLUMN, period.length);
+                return tokens;
+            })) > 0;
+        } else if (r[0].equals(NEW) && r.length > MATRIC_COLUMN + 1) {
+            String[] row = Arrays.copyOfRange(r, 1, r.length);
+            if (table.update(MATRIC_COLUMN, row[MATRIC_COLUMN], tokens -> row.clone()) == 0) {
+                table.append(row);
+            }
+            return true;
+        }
+        logger.log(Level.WARNING, "Skipping unknown journal record " + String.join(",", r));
+        return false;
+    }
+
+    /**
+     * wraps an edit so every row it changes is kept as it was before and after the edit, for rollBack
+     * @param images row images by matriculation number, null to only edit
+     * @param edit edit of the rows
+     * @return the edit that also keeps the images, a repeated edit of a row replaces them
+     */
+    private static UnaryOperator<String[]> imaged(Map<String, String[][]> images, UnaryOperator<String[]> edit) {
+        if (images == null) {
+            return edit;
+        }
+        return tokens -> {
+            String[] before = tokens.clone();
+            String[] after = edit.apply(tokens);
+            images.put(before[MATRIC_COLUMN], new String[][] { before, after.clone() });
+            return after;
+        };
+    }
+
+    /**
+     * applies every record of a journal file to the table
+     * @param file journal file to replay
+     */
+    private void replay(File file) {
+        if (!file.exists()) {
+            return;
+        }
+        CsvTokenizer tokenizer = new CsvTokenizer();
+        try (BufferedReader fileReader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = fileReader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    apply(tokenizer.reset(line).toArray(), null);
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not replay " + file + " (EnrollmentJournal -> replay)", e);
+        }
+    }
+
+    /**
+     * folds the journal into the csv
+     * the journal is rotated first so new records can be appended while the table is written
+     * @exception IOException if the journal could not be rotated or the table could not be written
+     */
+    public void compact() throws IOException {
+        synchronized (this) {
+            compactQueued = false;
+            if (segment != null) {
+                segment.file.getFD().sync();
+                segment.forcedOnClose = true;
+                segment.file.close();
+                segment = null;
+                markDurableAfterClose();
+            }
+            if (journalFile.exists()) {
+                if (rotatedFile.exists()) { // the last compaction did not finish, keep both
+                    try (BufferedReader fileReader = new BufferedReader(new FileReader(journalFile));
+                        FileOutputStream out = new FileOutputStream(rotatedFile, true)) {
+                        BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(out, Charset.defaultCharset()));
+                        String line;
+                        while ((line = fileReader.readLine()) != null) {
+                            bw.write(line);
+                            bw.newLine();
+                        }
+                        bw.flush();
+                        out.getChannel().force(false);
+                    }
+                    journalFile.delete();
+                } else if (!journalFile.renameTo(rotatedFile)) {
+                    throw new IOException("Could not rotate " + journalFile);
+                }
+            }
+            records = 0;
+        }
+        table.flush();
+        rotatedFile.delete();
+    }
+
+    /**
+     * every record written so far was forced by compact(), threads still waiting for them can return
+     * a batch that is being forced finds its file closed and is durable as well
+     * called with the journal lock held, which is fine as syncLock is never held while waiting for it
+     */
+    private void markDurableAfterClose() {
+        synchronized (syncLock) {
+            current.done = true;
+            current.durable = true;
+            current = new Batch();
+            syncLock.notifyAll();
+        }
+    }
+
+    /**
+     * compact() for the background thread, errors are only logged
+     */
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not compact " + journalFile + " (EnrollmentJournal -> compact)", e);
+        }
+    }
+
+    /**
+    * <h1>Batch</h1>
+    * records that are forced together, and the rows they changed so they can be rolled back if the force fails
+    */
+    private static final class Batch {
+        /**
+        * file the records were written to
+        */
+        private Segment segment;
+        /**
+        * row images of every record, in the order the records were applied
+        */
+        private final List<Map<String, String[][]>> images = new ArrayList<Map<String, String[][]>>();
+        /**
+        * set once the batch was forced, or failed to
+        */
+        private boolean done = false;
+        /**
+        * true if the records of the batch are on disk
+        */
+        private boolean durable = false;
+    }
+
+    /**
+    * <h1>Segment</h1>
+    * journalFile while it is open, from the first record after a compaction until the next compaction
+    */
+    private static final class Segment {
+        /**
+        * the open file, records are written at its end
+        */
+        private final RandomAccessFile file;
+        /**
+        * set by compact() once it forced the file, just before closing it
+        */
+        private volatile boolean forcedOnClose = false;
+
+        private Segment(RandomAccessFile file) {
+            this.file = file;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.List;
+
+/**
+* <h1>FixedWidthConverter</h1>
+* Converts a table between the csv format and the fixed-width format of FixedWidthFormat.
+* <p>
+* Converting to fixed-width drops the empty cells after the last used column (eg. the long run of
+* trailing commas in STUDENT.csv), converting back writes every row with the columns of the header
+* and one trailing comma, the same as rows added by DatabaseManager.
+* run with: java FixedWidthConverter STUDENT.csv STUDENT.fixed  or  java FixedWidthConverter STUDENT.fixed STUDENT.csv
+* @version 1.0
+* @since   2020-25-11
+*/
+public class FixedWidthConverter {
+
+    /**
+     * converts the first file into the second, the direction is taken from the file names
+     * @param args source file and target file
+     * @exception IOException if a file could not be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("usage: java FixedWidthConverter <from> <to>, one of them ending with " + FixedWidthFormat.SUFFIX);
+            return;
+        }
+        if (FixedWidthFormat.isFixedWidth(args[0])) {
+            toCsv(args[0], args[1]);
+        } else {
+            toFixedWidth(args[0], args[1]);
+        }
+        System.out.println("converted " + args[0] + " to " + args[1]);
+    }
+
+    /**
+     * writes a csv file in the fixed-width format
+     * @param csvFile file path of the csv
+     * @param fixedFile file path of the fixed-width file to create
+     * @exception IOException if a file could not be read or written
+     */
+    public static void toFixedWidth(String csvFile, String fixedFile) throws IOException {
+        List<String[]> rows = MappedCsvReader.readAll(csvFile);
+        FixedWidthFormat format = FixedWidthFormat.fitting(rows);
+        try (FileOutputStream out = new FileOutputStream(fixedFile)) {
+            for (String[] row : rows) {
+                out.write(format.encode(row));
+            }
+        }
+        Checkpoint.save(fixedFile, fixedFile);
+    }
+
+    /**
+     * writes a fixed-width file back as a csv
+     * @param fixedFile file path of the fixed-width file
+     * @param csvFile file path of the csv to create
+     * @exception IOException if a file could not be read or written
+     */
+    public static void toCsv(String fixedFile, String csvFile) throws IOException {
+        List<String[]> rows = MappedCsvReader.readAll(fixedFile);
+        int columns = rows.isEmpty() ? 0 : rows.get(0).length;
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(csvFile))) {
+            CsvWriter csv = new CsvWriter(bw);
+            for (String[] row : rows) {
+                csv.writeRow(DatabaseManager.padRow(FixedWidthFormat.decode(row), columns + 1));
+            }
+        }
+        Checkpoint.save(csvFile, csvFile);
+    }
+}
@@ -0,0 +1,233 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+* <h1>FixedWidthFormat</h1>
+* Layout of a fixed-width table file, where every cell of a column is padded with spaces to the same width.
+* <p>
+* Cells are still separated by commas and records end with \n, so the file stays readable as a csv,
+* but every record has the same length. Cell (row, col) therefore always starts at
+* row * recordLength + offset of col, and a changed cell can be written in place with
+* FileChannel.write(buffer, position) instead of rewriting the whole file.
+* The widths are not stored separately, they are the widths of the padded header cells.
+* e.g. "Course 1,Index 1,Course 2,..." with CourseIDs padded to 8 and indexes to 7 bytes
+* @version 1.0
+* @since   2020-25-11
+*/
+public class FixedWidthFormat {
+    /**
+    * file name suffix of fixed-width tables eg. STUDENT.fixed
+    */
+    static final String SUFFIX = ".fixed";
+    /**
+    * charset of the table files
+    */
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+    /**
+    * width in bytes of every column
+    */
+    private final int[] widths;
+    /**
+    * offset in bytes of every column from the start of a record
+    */
+    private final int[] offsets;
+    /**
+    * length in bytes of every record, the \n included
+    */
+    private final int recordLength;
+
+    /**
+     * @param widths width in bytes of every column
+     */
+    private FixedWidthFormat(int[] widths) {
+        this.widths = widths.clone();
+        this.offsets = new int[widths.length];
+        int offset = 0;
+        for (int i = 0; i < widths.length; i++) {
+            offsets[i] = offset;
+            offset += widths[i] + 1; // the comma, or the \n after the last column
+        }
+        this.recordLength = Math.max(offset, 1);
+    }
+
+    /**
+     * @param fileName file path of a table
+     * @return true if the table is stored in the fixed-width format
+     */
+    public static boolean isFixedWidth(String fileName) {
+        return fileName.endsWith(SUFFIX);
+    }
+
+    /**
+     * reads the layout from the padded header of a fixed-width file
+     * @param header header cells as read from the file, padding included
+     * @return FixedWidthFormat of the file
+     */
+    public static FixedWidthFormat fromHeader(String[] header) {
+        int[] widths = new int[header.length];
+        for (int i = 0; i < header.length; i++) {
+            widths[i] = byteLength(header[i]);
+        }
+        return new FixedWidthFormat(widths);
+    }
+
+    /**
+     * builds the narrowest layout that fits every row
+     * columns after the last non-empty cell of every row are left out
+     * @param rows rows of the table, row 0 is the header
+     * @return FixedWidthFormat that fits the rows
+     */
+    public static FixedWidthFormat fitting(List<String[]> rows) {
+        int[] widths = new int[0];
+        for (String[] row : rows) {
+            for (int i = row.length - 1; i >= 0; i--) {
+                if (!row[i].isEmpty()) {
+                    if (widths.length <= i) {
+                        widths = Arrays.copyOf(widths, i + 1);
+                    }
+                    break;
+                }
+            }
+            for (int i = 0; i < Math.min(row.length, widths.length); i++) {
+                widths[i] = Math.max(widths[i], byteLength(row[i]));
+            }
+        }
+        return new FixedWidthFormat(widths);
+    }
+
+    /**
+     * @return number of columns of the layout
+     */
+    public int columns() {
+        return widths.length;
+    }
+
+    /**
+     * @return length in bytes of every record
+     */
+    public int recordLength() {
+        return recordLength;
+    }
+
+    /**
+     * checks if a row can be written into a record of this layout without losing anything
+     * @param row row of the table
+     * @return true if every cell fits its column and cells beyond the last column are empty
+     */
+    public boolean fits(String[] row) {
+        for (int i = 0; i < row.length; i++) {
+            if (i < widths.length ? byteLength(row[i]) > widths[i] : !row[i].isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * encodes a whole record
+     * @param row row of the table, must fit the layout
+     * @return bytes of the record, \n included
+     */
+    public byte[] encode(String[] row) {
+        byte[] record = new byte[recordLength];
+        Arrays.fill(record, (byte) ' ');
+        for (int i = 0; i < widths.length; i++) {
+            if (i < row.length) {
+                byte[] cell = row[i].getBytes(CHARSET);
+                System.arraycopy(cell, 0, record, offsets[i], cell.length);
+            }
+            record[offsets[i] + widths[i]] = (byte) (i == widths.length - 1 ? '\n' : ',');
+        }
+        if (widths.length == 0) {
+            record[0] = '\n';
+        }
+        return record;
+    }
+
+    /**
+     * removes the padding of the cells read from a fixed-width file
+     * @param row cells as read from the file
+     * @return the same row with the trailing spaces of every cell removed
+     */
+    public static String[] decode(String[] row) {
+        for (int i = 0; i < row.length; i++) {
+            if (row[i].endsWith(" ")) {
+                row[i] = row[i].stripTrailing();
+            }
+        }
+        return row;
+    }
+
+    /**
+     * writes only the cells that changed, each one with a positioned write at its place in the file
+     * records of rows that were added are written whole at the end of the file
+     * the file is forced to disk before this returns
+     * @param fileName file path of the fixed-width table
+     * @param before content of every changed row as it is in the file, null for rows that were added
+     * @param rows current rows of the table
+     * @exception IOException if the file could not be written
+     */
+    public void writeChanges(String fileName, Map<Integer, String[]> before, List<String[]> rows) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.WRITE)) {
+            for (Map.Entry<Integer, String[]> change : before.entrySet()) {
+                int row = change.getKey();
+                long position = (long) row * recordLength;
+                String[] old = change.getValue();
+                String[] now = rows.get(row);
+                if (old == null) {
+                    writeFully(channel, ByteBuffer.wrap(encode(now)), position);
+                    continue;
+                }
+                for (int i = 0; i < widths.length; i++) {
+                    String value = i < now.length ? now[i] : "";
+                    if (!value.equals(i < old.length ? old[i] : "")) {
+                        writeFully(channel, cell(i, value), position + offsets[i]);
+                    }
+                }
+            }
+            channel.force(false);
+        }
+    }
+
+    /**
+     * @param col column of the cell
+     * @param value value of the cell, must fit the column
+     * @return bytes of the cell padded to the width of its column
+     */
+    private ByteBuffer cell(int col, String value) {
+        byte[] cell = new byte[widths[col]];
+        Arrays.fill(cell, (byte) ' ');
+        byte[] bytes = value.getBytes(CHARSET);
+        System.arraycopy(bytes, 0, cell, 0, bytes.length);
+        return ByteBuffer.wrap(cell);
+    }
+
+    /**
+     * FileChannel.write(buffer, position) may write only part of the buffer, so write until it is empty
+     * @param channel file to write
+     * @param buffer bytes to write
+     * @param position position in the file
+     * @exception IOException if the file could not be written
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * @param s text to count
+     * @return number of bytes of s in CHARSET
+     */
+    private static int byteLength(String s) {
+        return s.getBytes(CHARSET).length;
+    }
+}
@@ -0,0 +1,597 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+* <h1>JdbcStorageEngine</h1>
+* StorageEngine that keeps a table in an embedded single-file database through JDBC, eg. H2 or SQLite in file mode.
+* <p>
+* Every csv becomes one database table named after the file (STUDENT.csv -&gt; STUDENT) with an INTEGER
+* primary key pos for the row order and one VARCHAR column per csv column (c0, c1, ...).
+* The first time a table is opened it is created and filled from its csv, from then on the database is the source
+* and the csv is no longer written. createIndex creates a real database index over the key columns,
+* and every change is its own transaction, so a change is durable once the call returns.
+* <p>
+* The JDBC driver is not shipped with the program, put its jar on the classpath
+* e.g. java -cp .:h2.jar -Dstars.storage.url=jdbc:h2:./STARS MainUI
+* @version 1.0
+* @since   2020-25-11
+*/
+public class JdbcStorageEngine implements StorageEngine {
+    /**
+    * creates logger instance of jdbc storage engine to log exceptions and other errors
+    */
+    private static Logger logger = Logger.getLogger(JdbcStorageEngine.class.getName());
+    /**
+    * type of every column of a table
+    */
+    private static final String CELL_TYPE = "VARCHAR(255)";
+    /**
+    * tables that are already open, keyed by absolute file path
+    */
+    private static final Map<String, JdbcStorageEngine> engines = new HashMap<String, JdbcStorageEngine>();
+    /**
+    * set once the database could not be opened, from then on the csv files are used without trying again
+    */
+    private static boolean unavailable = false;
+
+    /**
+    * file path of the csv of this table
+    */
+    private final String FILE;
+    /**
+    * name of the database table
+    */
+    private final String TABLE;
+    /**
+    * connection of this table, never in auto-commit mode
+    */
+    private final Connection connection;
+    /**
+    * number of cell columns of the database table
+    */
+    private int columns;
+
+    /**
+    * opens the database table of a csv, and creates it from the csv if it does not exist yet
+    * @param fileName file path of the csv
+    * @param connection connection to the database
+    * @exception SQLException if the table could not be opened or created
+    */
+    private JdbcStorageEngine(String fileName, Connection connection) throws SQLException {
+        FILE = fileName;
+        TABLE = tableName(fileName);
+        this.connection = connection;
+        try (Statement statement = connection.createStatement();
+            ResultSet rs = statement.executeQuery("SELECT * FROM " + TABLE + " WHERE 1 = 0")) {
+            columns = rs.getMetaData().getColumnCount() - 1;
+        } catch (SQLException e) { // first time, the table does not exist yet
+            connection.rollback();
+            importCsv();
+        }
+    }
+
+    /**
+     * gets the table of a csv file in the database at url, the table is only opened the first time
+     * @param url JDBC url of the database eg. jdbc:h2:./STARS
+     * @param fileName file path of the csv
+     * @return JdbcStorageEngine of the table, null if the database could not be opened
+     */
+    static JdbcStorageEngine of(String url, String fileName) {
+        String key = Paths.get(fileName).toAbsolutePath().normalize().toString();
+        synchronized (engines) {
+            JdbcStorageEngine engine = engines.get(key);
+            if (engine == null && !unavailable) {
+                Connection connection = null;
+                try {
+                    connection = DriverManager.getConnection(url);
+                    connection.setAutoCommit(false);
+                    engine = new JdbcStorageEngine(fileName, connection);
+                    engines.put(key, engine);
+                } catch (SQLException e) {
+                    logger.log(Level.WARNING, "Could not open " + url + ", using the csv files (JdbcStorageEngine -> of)", e);
+                    unavailable = true;
+                    close(connection);
+                }
+            }
+            return engine;
+        }
+    }
+
+    /**
+     * @param fileName file path of the csv eg. STUDENT.csv
+     * @return name of its database table eg. STUDENT
+     */
+    private static String tableName(String fileName) {
+        String name = new File(fileName).getName();
+        int dot = name.indexOf('.');
+        if (dot > 0) {
+            name = name.substring(0, dot);
+        }
+        return name.toUpperCase().replaceAll("[^A-Z0-9_]", "_");
+    }
+
+    /**
+     * creates the database table and copies every row of the csv into it
+     * @exception SQLException if the table could not be created
+     */
+    private void importCsv() throws SQLException {
+        List<String[]> rows;
+        try {
+            rows = MappedCsvReader.readAll(FILE);
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Could not open/find " + FILE + " to import (JdbcStorageEngine -> importCsv)", e);
+            rows = new ArrayList<String[]>();
+        }
+        columns = 1;
+        for (String[] row : rows) {
+            if (FixedWidthFormat.isFixedWidth(FILE)) {
+                FixedWidthFormat.decode(row);
+            }
+            columns = Math.max(columns, row.length);
+        }
+        StringBuilder create = new StringBuilder("CREATE TABLE " + TABLE + " (pos INTEGER PRIMARY KEY");
+        for (int i = 0; i < columns; i++) {
+            create.append(", c").append(i).append(' ').append(CELL_TYPE);
+        }
+        create.append(")");
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate(create.toString());
+        }
+        try (PreparedStatement insert = connection.prepareStatement(insertSql())) {
+            for (int pos = 0; pos < rows.size(); pos++) {
+                bind(insert, pos, rows.get(pos));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        logger.log(Level.INFO, "Imported " + rows.size() + " rows of " + FILE + " into " + TABLE);
+    }
+
+    /**
+     * @return String file path of the csv of this table
+     */
+    public String getFILE() {
+        return FILE;
+    }
+
+    /**
+     * creates a database index over the key columns, if it does not exist yet
+     * @param cols key columns eg. 2 for Username or 0, 2 for CourseID+Index
+     */
+    public synchronized void createIndex(int... cols) {
+        StringBuilder name = new StringBuilder(TABLE + "_KEY");
+        StringBuilder on = new StringBuilder();
+        for (int col : cols) {
+            name.append('_').append(col);
+            on.append(on.length() == 0 ? "" : ", ").append('c').append(col);
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE INDEX IF NOT EXISTS " + name + " ON " + TABLE + " (" + on + ")");
+            connection.commit();
+        } catch (SQLException e) {
+            rollback();
+            logger.log(Level.WARNING, "Could not create index " + name + " (JdbcStorageEngine -> createIndex)", e);
+        }
+    }
+
+    /**
+     * gets a copy of the first row whose column col equals lookingFor
+     * @param col column number to look for unique identifier eg. Username
+     * @param lookingFor item to look for eg. "Hermione"
+     * @return String[] copy of the row, null if not found
+     */
+    public String[] find(int col, String lookingFor) {
+        return find(new int[] { col }, lookingFor);
+    }
+
+    /**
+     * gets a copy of the row with a key through the database index over the key columns
+     * @param cols key columns eg. {0, 2} for CourseID+Index
+     * @param key values of the key columns joined by commas eg. "RA1001,1201"
+     * @return String[] copy of the row, null if not found
+     */
+    public synchronized String[] find(int[] cols, String key) {
+        try {
+            Map<Integer, String[]> found = select(cols, key);
+            connection.commit();
+            return found.isEmpty() ? null : found.values().iterator().next();
+        } catch (SQLException e) {
+            rollback();
+            logger.log(Level.WARNING, "Could not read " + TABLE + " (JdbcStorageEngine -> find)", e);
+            return null;
+        }
+    }
+
+    /**
+     * scans the table for the first row that matches
+     * @param match condition the row has to fulfill
+     * @return String[] copy of the row, null if not found
+     */
+    public String[] find(Predicate<String[]> match) {
+        for (String[] row : rows()) {
+            if (match.test(row)) {
+                return row;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return all rows including the header, in the order of the csv
+     */
+    public synchronized List<String[]> rows() {
+        try {
+            Map<Integer, String[]> all = select(null, new String[0]);
+            connection.commit();
+            return new ArrayList<String[]>(all.values());
+        } catch (SQLException e) {
+            rollback();
+            logger.log(Level.WARNING, "Could not read " + TABLE + " (JdbcStorageEngine -> rows)", e);
+            return new ArrayList<String[]>();
+        }
+    }
+
+    /**
+     * replaces the row whose column col equals key with the result of edit
+     * @param col column number of the key eg. Matriculation Number
+     * @param key key of the row eg. "U2000001C"
+     * @param edit gets a copy of the row and returns the new row
+     * @return number of rows changed
+     */
+    public int update(int col, String key, UnaryOperator<String[]> edit) {
+        return update(new int[] { col }, key, edit);
+    }
+
+    /**
+     * replaces the rows with a key with the result of edit, in one transaction
+     * @param cols key columns eg. {0, 2} for CourseID+Index
+     * @param key values of the key columns joined by commas eg. "RA1001,1201"
+     * @param edit gets a copy of the row and returns the new row
+     * @return number of rows changed
+     */
+    public synchronized int update(int[] cols, String key, UnaryOperator<String[]> edit) {
+        try {
+            Map<Integer, String[]> found = select(cols, key);
+            return write(edit(found, row -> true, edit));
+        } catch (SQLException e) {
+            rollback();
+            logger.log(Level.WARNING, "Could not update " + TABLE + " (JdbcStorageEngine -> update)", e);
+            return 0;
+        } catch (RuntimeException e) {
+            rollback();
+            throw e;
+        }
+    }
+
+    /**
+     * scans the table and replaces every row that matches with the result of edit, in one transaction
+     * @param match condition the row has to fulfill
+     * @param edit gets a copy of the row and returns the new row
+     * @return number of rows changed
+     */
+    public synchronized int update(Predicate<String[]> match, UnaryOperator<String[]> edit) {
+        try {
+            Map<Integer, String[]> all = select(null, new String[0]);
+            return write(edit(all, match, edit));
+        } catch (SQLException e) {
+            rollback();
+            logger.log(Level.WARNING, "Could not update " + TABLE + " (JdbcStorageEngine -> update)", e);
+            return 0;
+        } catch (RuntimeException e) {
+            rollback();
+            throw e;
+        }
+    }
+
+    /**
+     * adds a row at the end of the table
+     * @param row row to add
+     */
+    public synchronized void append(String[] row) {
+        try {
+            int pos;
+            try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(pos), -1) + 1 FROM " + TABLE)) {
+                rs.next();
+                pos = rs.getInt(1);
+            }
+            widen(row.length);
+            try (PreparedStatement insert = connection.prepareStatement(insertSql())) {
+                bind(insert, pos, row);
+                insert.executeUpdate();
+            }
+            connection.commit();
+            RowCache.invalidateAll(FILE);
+        } catch (SQLException e) {
+            rollback();
+            logger.log(Level.WARNING, "Could not append to " + TABLE + " (JdbcStorageEngine -> append)", e);
+        }
+    }
+
+    /**
+     * starts a transaction on this table
+     * @return Transaction that collects row edits until commit() is called
+     */
+    public Transaction begin() {
+        return new Transaction();
+    }
+
+    /**
+     * applies all edits of a transaction in one database transaction
+     * nothing is changed unless every edit found its row and none of them failed
+     * @param edits edits of the transaction
+     * @return true if the transaction was applied, false if it was rolled back
+     */
+    private synchronized boolean commit(List<RowEdit> edits) {
+        try {
+            Map<Integer, String[]> changed = new HashMap<Integer, String[]>();
+            for (RowEdit edit : edits) {
+                Map<Integer, String[]> found = select(new int[] { edit.col }, edit.key);
+                if (found.isEmpty()) {
+                    rollback();
+                    logger.log(Level.FINE, "Rolled back transaction on " + TABLE + ", no row with " + edit.key);
+                    return false;
+                }
+                for (Map.Entry<Integer, String[]> row : found.entrySet()) {
+                    String[] current = changed.containsKey(row.getKey()) ? changed.get(row.getKey()) : row.getValue();
+                    changed.put(row.getKey(), edit.edit.apply(current));
+                }
+            }
+            write(changed);
+            return true;
+        } catch (SQLException e) {
+            rollback();
+            logger.log(Level.WARNING, "Could not commit transaction on " + TABLE + " (JdbcStorageEngine -> commit)", e);
+            return false;
+        } catch (RuntimeException e) {
+            rollback();
+            logger.log(Level.FINE, "Rolled back transaction on " + TABLE + " (JdbcStorageEngine -> commit)", e);
+            return false;
+        }
+    }
+
+    /**
+     * every change is committed when it is made, so there is nothing left to write
+     * @exception IOException if the last transaction could not be committed
+     */
+    public synchronized void flush() throws IOException {
+        try {
+            connection.commit();
+        } catch (SQLException e) {
+            throw new IOException("Could not commit " + TABLE, e);
+        }
+    }
+
+    /**
+     * reads the rows with a key, or every row
+     * @param cols key columns, null for every row
+     * @param key values of the key columns joined by commas
+     * @return rows by position, in the order of the csv
+     * @exception SQLException if the table could not be read
+     */
+    private Map<Integer, String[]> select(int[] cols, String key) throws SQLException {
+        return select(cols, cols == null ? new String[0] : keyValues(cols, key));
+    }
+
+    /**
+     * reads the rows whose key columns equal values, or every row
+     * @param cols key columns, null for every row
+     * @param values value of every key column
+     * @return rows by position, in the order of the csv
+     * @exception SQLException if the table could not be read
+     */
+    private Map<Integer, String[]> select(int[] cols, String[] values) throws SQLException {
+        Map<Integer, String[]> found = new LinkedHashMap<Integer, String[]>();
+        if (cols != null && values.length != cols.length) {
+            return found;
+        }
+        StringBuilder sql = new StringBuilder("SELECT * FROM " + TABLE);
+        for (int i = 0; cols != null && i < cols.length; i++) {
+            if (cols[i] >= columns) {
+                return found;
+            }
+            sql.append(i == 0 ? " WHERE c" : " AND c").append(cols[i]).append(" = ?");
+        }
+        sql.append(" ORDER BY pos");
+        try (PreparedStatement select = connection.prepareStatement(sql.toString())) {
+            for (int i = 0; i < values.length; i++) {
+                select.setString(i + 1, values[i]);
+            }
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    String[] row = new String[columns];
+                    for (int i = 0; i < columns; i++) {
+                        String cell = rs.getString(i + 2);
+                        row[i] = cell == null ? "" : cell;
+                    }
+                    found.put(rs.getInt(1), row);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @param cols key columns
+     * @param key values of the key columns joined by commas the same way as RowIndex.key
+     * @return value of every key column
+     */
+    private static String[] keyValues(int[] cols, String key) {
+        return cols.length == 1 ? new String[] { key } : key.split(",", -1);
+    }
+
+    /**
+     * applies edit to the rows that match
+     * @param rows rows by position
+     * @param match condition the row has to fulfill
+     * @param edit gets the row and returns the new row
+     * @return new rows by position
+     */
+    private static Map<Integer, String[]> edit(Map<Integer, String[]> rows, Predicate<String[]> match, UnaryOperator<String[]> edit) {
+        Map<Integer, String[]> changed = new LinkedHashMap<Integer, String[]>();
+        for (Map.Entry<Integer, String[]> row : rows.entrySet()) {
+            if (match.test(row.getValue())) {
+                changed.put(row.getKey(), edit.apply(row.getValue()));
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * writes changed rows back and commits, then drops the entries of the table from the RowCache
+     * @param changed new rows by position
+     * @return number of rows written
+     * @exception SQLException if the rows could not be written
+     */
+    private int write(Map<Integer, String[]> changed) throws SQLException {
+        for (String[] row : changed.values()) {
+            widen(row.length);
+        }
+        StringBuilder sql = new StringBuilder("UPDATE " + TABLE + " SET ");
+        for (int i = 0; i < columns; i++) {
+            sql.append(i == 0 ? "c" : ", c").append(i).append(" = ?");
+        }
+        sql.append(" WHERE pos = ?");
+        try (PreparedStatement update = connection.prepareStatement(sql.toString())) {
+            for (Map.Entry<Integer, String[]> row : changed.entrySet()) {
+                for (int i = 0; i < columns; i++) {
+                    update.setString(i + 1, i < row.getValue().length ? row.getValue()[i] : "");
+                }
+                update.setInt(columns + 1, row.getKey());
+                update.addBatch();
+            }
+            update.executeBatch();
+        }
+        connection.commit();
+        RowCache.invalidateAll(FILE); // the rows before the edit are not kept, so their keys are not known
+        return changed.size();
+    }
+
+    /**
+     * adds columns to the database table until it has at least size of them
+     * @param size number of cells of a row that is written
+     * @exception SQLException if a column could not be added
+     */
+    private void widen(int size) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (; columns < size; columns++) {
+                statement.executeUpdate("ALTER TABLE " + TABLE + " ADD COLUMN c" + columns + " " + CELL_TYPE);
+            }
+        }
+    }
+
+    /**
+     * @return INSERT statement for a row with every column
+     */
+    private String insertSql() {
+        StringBuilder sql = new StringBuilder("INSERT INTO " + TABLE + " VALUES (?");
+        for (int i = 0; i < columns; i++) {
+            sql.append(", ?");
+        }
+        return sql.append(")").toString();
+    }
+
+    /**
+     * sets the parameters of an INSERT statement
+     * @param insert statement from insertSql()
+     * @param pos position of the row
+     * @param row cells of the row, missing cells are written as empty
+     * @exception SQLException if a parameter could not be set
+     */
+    private void bind(PreparedStatement insert, int pos, String[] row) throws SQLException {
+        insert.setInt(1, pos);
+        for (int i = 0; i < columns; i++) {
+            insert.setString(i + 2, i < row.length ? row[i] : "");
+        }
+    }
+
+    /**
+     * rolls back the current transaction, errors are only logged
+     */
+    private void rollback() {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Could not roll back " + TABLE + " (JdbcStorageEngine -> rollback)", e);
+        }
+    }
+
+    /**
+     * closes a connection that could not be used, errors are ignored
+     * @param connection connection to close, may be null
+     */
+    private static void close(Connection connection) {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                logger.log(Level.FINE, "Could not close connection (JdbcStorageEngine -> close)", e);
+            }
+        }
+    }
+
+    /**
+    * <h1>Transaction</h1>
+    * batch of row edits across several keys that is applied in one database transaction
+    * e.g. both rows of an index swap
+    */
+    public class Transaction implements StorageEngine.Transaction {
+        /**
+        * edits collected so far
+        */
+        private final List<RowEdit> edits = new ArrayList<RowEdit>();
+
+        /**
+         * adds an edit to the transaction, every row whose column col equals key will be edited
+         * the edit can throw a RuntimeException to roll back the whole transaction
+         * @param col column number of the key eg. Matriculation Number
+         * @param key key of the row eg. "U2000001C"
+         * @param edit gets a copy of the row and returns the new row
+         * @return this Transaction so edits can be chained
+         */
+        public Transaction edit(int col, String key, UnaryOperator<String[]> edit) {
+            edits.add(new RowEdit(col, key, edit));
+            return this;
+        }
+
+        /**
+         * applies all edits of this transaction
+         * @return true if every edit was applied, false if nothing was changed
+         */
+        public boolean commit() {
+            return JdbcStorageEngine.this.commit(edits);
+        }
+    }
+
+    /**
+    * one edit of a transaction
+    */
+    private static class RowEdit {
+        private final int col;
+        private final String key;
+        private final UnaryOperator<String[]> edit;
+
+        private RowEdit(int col, String key, UnaryOperator<String[]> edit) {
+            this.col = col;
+            this.key = key;
+            this.edit = edit;
+        }
+    }
+}
@@ -51,13 +51,29 @@ public class Lesson {
 	 */
 	public Lesson (String lesson, String venue, int dayEnum, String startTime, String endTime) {
                                                 //dayEnum:1=monday;7=sunday
-		this.venue = venue;
-        this.lesson_type = lesson;
+		this.venue = StringPool.canon(venue);
+        this.lesson_type = StringPool.canon(lesson);
         this.day = DayOfWeek.of(dayEnum);
 		this.start = LocalTime.parse(startTime);
 		this.end = LocalTime.parse(endTime);
 	}
 
+	/**
+	 * Constructor for Lesson with the day and times already parsed, used when loading a Snapshot
+	 * @param lesson	the lesson type e.g.Lecture/Lab
+	 * @param venue		venue where the lesson will be held
+	 * @param day		the day the lesson is held
+	 * @param start		what time the lesson starts
+	 * @param end		what time the lesson ends
+	 */
+	public Lesson (String lesson, String venue, DayOfWeek day, LocalTime start, LocalTime end) {
+		this.venue = StringPool.canon(venue);
+		this.lesson_type = StringPool.canon(lesson);
+		this.day = day;
+		this.start = start;
+		this.end = end;
+	}
+
 	/**
 	 * Checks if this lesson clashes timing with another lesson
 	 * @param l The other Lesson to compare this lesson against
@@ -5,11 +5,10 @@ import java.io.BufferedWriter;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Base64;
-import java.util.List;
 
 /**
 * <h1>Login control class</h1>
@@ -30,40 +29,41 @@ public class Login {
     */
 	final static String STUDENTLOGIN = "STUDENTLOGIN.csv";
 	/** 
-    * login file selected in this instance
-    */
-	private static String LOGINFILE;
-	/** 
     * columns in the login file
     */
     static enum columns {
 		Username,
 		Password,
         Salt,
-        Hash;
+        Hash,
+        Iterations,
+        KeyLength;
 	}
+	/** 
+    * header of a login file, written when the file is rewritten
+    */
+	private final static String HEADER = "Username,Password,Salt,Hash,Iterations,Key Length";
 
 	
 	/** 
-	 * verifies access period and changes the file based on whether admin or student
+	 * verifies access period and chooses the file based on whether admin or student
+	 * the file is returned instead of kept in a static field, so concurrent logins do not overwrite each other's
 	 * @param userName String of student/admin username--> identifier
 	 * @param userDomain String of student/admin --> identify login file to use
-	 * @return boolean true if admin or student logs in during access period, false otherwise
+	 * @return String login file to use if admin or student logs in during access period, null otherwise
 	 */
-	private static boolean verifyAccessPeriod(String userName, String userDomain){
+	private static String verifyAccessPeriod(String userName, String userDomain){
 		if(userDomain.equals("admin")){
-			LOGINFILE = ADMINLOGIN;
+			return ADMINLOGIN;
 		}else if (userDomain.equals("student")){
-			LOGINFILE = STUDENTLOGIN;
 			if(!CurrentDateTime.checkAccess(userName)){
-				return false;
+				return null;
 			}
+			return STUDENTLOGIN;
 		}else{
 			System.out.println("error, no such domains!(Login)");
-			return false;
+			return null;
 		}
-		
-		return true;
 	}
 
 	
@@ -73,44 +73,30 @@ public class Login {
 	 * and verifies that the user has logged in with correct password (admin and student)
 	 * this is by converting password to byte array and use hash algorithm 
 	 * PBKDF2WithHmacSHA512 to authenticate login
+	 * the salt and hash of the user are taken from the CredentialStore, so a login runs one key derivation
+	 * and does not read the login file
+	 * a password stored with another iteration count or key length than the current one is hashed again after a
+	 * successful login, so the cost can be changed without resetting every password
 	 * @param userName String to identify user
 	 * @param userPass String password of user 
 	 * @param userDomain String either student or admin
 	 * @return boolean true if password, domain, access period is correct, false otherwise.
-	 * @exception IOException if cannot close file
 	 */
 	public static boolean verifyLogin(String userName, String userPass, String userDomain){ 
 		boolean success = false;
-		if(verifyAccessPeriod( userName,  userDomain)){
-			BufferedReader fileReader = null;
-
+		String loginFile = verifyAccessPeriod(userName, userDomain);
+		if(loginFile != null){
+			CredentialStore.Credential credential = CredentialStore.get(loginFile, userName);
 			try { 
-				String line = "";
-				fileReader = new BufferedReader(new FileReader(LOGINFILE));
-				fileReader.readLine();
-				while ((line = fileReader.readLine()) != null) {
-					String[] tokens = line.split(",",-1);
-					String salt = tokens[columns.Salt.ordinal()];
-					String hash = tokens[columns.Hash.ordinal()];
-					byte[] s = Base64.getDecoder().decode(salt.trim()); 
-					byte[] h = Base64.getDecoder().decode(hash.trim()); 
-					boolean valid = PBKDF2WithHmacSHA512.authenticate(userPass, s, h);
-					if (tokens[columns.Username.ordinal()].compareTo(userName) == 0 && valid) {
-						success = true;
+				if (credential != null) {
+					success = credential.authenticate(userPass);
+					if (success && credential.needsRehash()) {
+						rehash(loginFile, userName, userPass, credential);
 					}
 				}
-				
-
 			} catch (Exception e) {
 				System.out.println("Error in CsvFileReader!(Login)");
 				e.printStackTrace();
-			} finally {
-				try {
-					fileReader.close();
-				} catch (IOException e) {
-					System.out.println("Error closing fileReader!(Login)");
-					e.printStackTrace();
-				}
 			}
 		}
 		if(!success){
@@ -121,11 +107,33 @@ public class Login {
 	}
 
 	
+	/** 
+	 * hashes the password of a user again with the current iteration count and key length
+	 * the row is only replaced if it still holds the credential the user logged in with,
+	 * so a password changed in the meantime is not overwritten with the old one
+	 * errors are only printed, the user is logged in either way and the next login tries again
+	 * @param loginFile login file of the user
+	 * @param userName String username of the user
+	 * @param password String password the user just logged in with
+	 * @param loggedInWith credential the password was checked against
+	 */
+	private static void rehash(String loginFile, String userName, String password, CredentialStore.Credential loggedInWith) {
+		try {
+			byte[] salt = PBKDF2WithHmacSHA512.salt(); 
+			byte[] hash = PBKDF2WithHmacSHA512.hash(password, salt); 
+			writeCredential(loginFile, userName, salt, hash, loggedInWith);
+		} catch (Exception e) {
+			System.out.println("Error updating the password hash(Login)");
+			e.printStackTrace();
+		}
+	}
+
+	
 	/** 
 	 * default password added for newly added students
 	 * @param userName String identifier for new student entry in csv
 	 */
-	public static void addPassword(String userName) {
+	public static synchronized void addPassword(String userName) {
 		PrintWriter pw = null;
 		try {
 			String password = "login";
@@ -134,21 +142,21 @@ public class Login {
 			pw= new PrintWriter(bw);
 
 			byte[] salt = PBKDF2WithHmacSHA512.salt(); 
-			String saltString = Base64.getEncoder().encodeToString(salt); 
 			byte[] hash = PBKDF2WithHmacSHA512.hash(password, salt); 
-			String hashString = Base64.getEncoder().encodeToString(hash); 
 
-			StringBuilder newLine = new StringBuilder();
-			newLine.append(userName + "," +  "," + saltString + "," + hashString);
-			pw.println(newLine);
+			pw.println(credentialLine(userName, salt, hash));
+			pw.flush();
+			CredentialStore.put(STUDENTLOGIN, userName, salt, hash);
 
 			
 		} catch (Exception e) {
 			e.printStackTrace();
 			System.out.println("Error changing main file(Login)");
 		}finally{
-			pw.flush();
-			pw.close();
+			if (pw != null) {
+				pw.flush();
+				pw.close();
+			}
 		}
 	}
 
@@ -160,62 +168,75 @@ public class Login {
 	 * @param password String new password of student 
 	 */
 	public static void changePassword(String userName, String password) {
-		FileWriter fw = null;
 		try {
-			fw = new FileWriter(STUDENTLOGIN, true); 
-			BufferedReader fileReader = null;
-			ArrayList<String[]> reWrite = new ArrayList<String[]>();
-			fileReader = new BufferedReader(new FileReader(STUDENTLOGIN));
-			
 			byte[] salt = PBKDF2WithHmacSHA512.salt(); 
-			String saltString = Base64.getEncoder().encodeToString(salt); 
 			byte[] hash = PBKDF2WithHmacSHA512.hash(password, salt); 
-			String hashString = Base64.getEncoder().encodeToString(hash); 
-			String line = "";
-			try {
-				while ((line = fileReader.readLine()) != null) {
-					String[] tokens = line.split(",", -1);
-					List<String> token = Arrays.asList(tokens);
-					if (token.contains(userName)) { 
-						tokens[1] = "";
-						tokens[2] = saltString;
-						tokens[3] = hashString;
-						reWrite.add(tokens);
-					} else
-						reWrite.add(tokens);
-				}
-				System.out.println("Changing of password successful.");
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
-			try {
-				fw = new FileWriter(STUDENTLOGIN); 
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
-			for (String[] l : reWrite) {
-				String s = String.join(",", l);
-				try {
-					fw.append(s + "\n");
-				} catch (Exception e) {
-					e.printStackTrace();
-				}
+			if (writeCredential(STUDENTLOGIN, userName, salt, hash, null)) {
+				SessionStore.invalidateUser(userName, "student"); // sessions started with the old password end
 			}
+			System.out.println("Changing of password successful.");
 		} catch (Exception e) {
 			e.printStackTrace();
-		}finally{
-			if (fw!= null){
-				try {
-					fw.flush();
-					fw.close();
-				} catch (IOException e) {
-					e.printStackTrace();
-				}
-				
+		}
+	}
+
+	
+	/** 
+	 * replaces the salt, hash, iteration count and key length in the row of a user, crash-safe through DurableFile,
+	 * and puts the new credential in the CredentialStore while the file is still locked
+	 * the header is brought up to date, the other rows are written back as they were read
+	 * @param loginFile login file to rewrite
+	 * @param userName String username of the user
+	 * @param salt salt of the new hash
+	 * @param hash hash of the password with the current iteration count and key length
+	 * @param expected credential the row has to hold, null to replace whatever it holds
+	 * @return boolean true if the user was found in the file and the row was replaced
+	 * @exception IOException if the file could not be read or written, it is then left as it was
+	 */
+	private static synchronized boolean writeCredential(String loginFile, String userName, byte[] salt, byte[] hash,
+			CredentialStore.Credential expected) throws IOException {
+		ArrayList<String> reWrite = new ArrayList<String>();
+		boolean found = false;
+		try (BufferedReader fileReader = new BufferedReader(new FileReader(loginFile))) {
+			String line = fileReader.readLine();
+			reWrite.add(HEADER);
+			CsvTokenizer tokens = new CsvTokenizer();
+			while ((line = fileReader.readLine()) != null) {
+				if (tokens.reset(line).fieldEquals(columns.Username.ordinal(), userName)) { 
+					if (expected != null && !expected.isStoredAs(tokens.field(columns.Salt.ordinal()), tokens.field(columns.Hash.ordinal()))) {
+						return false; // changed since it was read, eg. by changePassword
+					}
+					reWrite.add(credentialLine(userName, salt, hash));
+					found = true;
+				} else
+					reWrite.add(line); // unchanged lines are written back as they were read
 			}
 		}
+		if (found) {
+			DurableFile.replace(loginFile, loginFile + ".tmp", out -> {
+				BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(out));
+				CsvWriter csv = new CsvWriter(bw, "\n");
+				for (String l : reWrite) {
+					csv.writeLine(l);
+				}
+				bw.flush();
+			});
+			CredentialStore.put(loginFile, userName, salt, hash);
+		}
+		return found;
 	}
 
 	
-}
+	/** 
+	 * @param userName String username
+	 * @param salt salt of the password
+	 * @param hash hash of the password with the current iteration count and key length
+	 * @return String row of the login file eg. "DON001,,&lt;salt&gt;,&lt;hash&gt;,1000,64"
+	 */
+	private static String credentialLine(String userName, byte[] salt, byte[] hash) {
+		return userName + "," + "," + Base64.getEncoder().encodeToString(salt) + "," + Base64.getEncoder().encodeToString(hash)
+				+ "," + PBKDF2WithHmacSHA512.ITERATION_COUNT + "," + PBKDF2WithHmacSHA512.KEY_LENGTH;
+	}
 
+	
+}
@@ -1,6 +1,8 @@
 
 
 import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.io.Console;
 
 /** 
@@ -78,9 +80,22 @@ public class MainUI{
                     counter++;
                 }
                 /** 
-                 * verifies user
+                 * verifies user on the AuthService workers
                  */
-                verified = Login.verifyLogin(userName, userPass, userDomain); 
+                try {
+                    verified = AuthService.verifyLogin(userName, userPass, userDomain).get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof RejectedExecutionException) {
+                        System.out.println("Too many logins at the moment, please try again.(MainUI)");
+                        counter--; // a rejected login does not use up a try
+                        continue;
+                    }
+                    System.out.println("There was an error during login.(MainUI)");
+                    verified = false;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    verified = false;
+                }
                 if(!verified){
                     
                     System.out.println("You have " + (3-counter) +" tries left");
@@ -105,6 +120,13 @@ public class MainUI{
             }
             
         }sc.close();
+        /** 
+         * writes every table that still has changes in memory back to its csv,
+         * then saves the snapshot that the next start is loaded from
+         */
+        StudentDatabaseManager.compactJournal();
+        CsvTable.flushAll();
+        Snapshot.save();
         
         
         
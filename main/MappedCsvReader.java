@@ -0,0 +1,316 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+* <h1>MappedCsvReader</h1>
+* Reads a csv file into one buffer with FileChannel.read and scans the field boundaries
+* directly on the bytes of the buffer.
+* <p>
+* The file is read instead of mapped with FileChannel.map: a mapping is only released when its buffer is
+* garbage collected, and on Windows a mapped file cannot be replaced or deleted until then, which would
+* make the next DurableFile.move of the table fail. The channel is closed as soon as the bytes are read.
+* <p>
+* No String is created for a line, and a field only becomes a String when it is asked for.
+* Empty fields (eg. the long run of trailing commas in STUDENT.csv) are all the same "" instance,
+* and fields that are plain ASCII are decoded without going through the charset.
+* Blank lines are skipped and both \n and \r\n line endings are accepted.
+* <p>
+* readAll splits files larger than PARALLEL_BYTES into line-aligned chunks and parses them in parallel
+* on the common ForkJoinPool, the rows are still returned in the order of the file.
+* the size can be changed with the system property stars.csv.parallel.bytes
+* @version 1.0
+* @since   2020-25-11
+*/
+public class MappedCsvReader {
+    /**
+    * charset of the csv files, fields that are plain ASCII are decoded without it
+    */
+    private static final Charset CHARSET = Charset.defaultCharset();
+    /**
+    * files of at least this many bytes are parsed in parallel chunks
+    */
+    static final int PARALLEL_BYTES = Integer.getInteger("stars.csv.parallel.bytes", 1 << 20);
+    /**
+    * smallest chunk a file is split into
+    */
+    private static final int MIN_CHUNK_BYTES = 64 * 1024;
+
+    /**
+    * <h1>RowVisitor</h1>
+    * gets called once for every line of the csv
+    */
+    public interface RowVisitor {
+        /**
+         * @param row fields of the line, only valid until this method returns
+         */
+        void visit(Row row);
+    }
+
+    /**
+     * reads every row of a csv file into memory
+     * @param fileName file path of the csv
+     * @return List of rows
+     * @exception IOException if the file could not be read
+     */
+    public static List<String[]> readAll(String fileName) throws IOException {
+        ByteBuffer buf = read(fileName);
+        int limit = buf.limit();
+        if (limit < PARALLEL_BYTES) {
+            return readRange(buf, 0, limit);
+        }
+        return ForkJoinPool.commonPool().invoke(new ChunkTask(buf, chunks(buf, limit), 0, -1));
+    }
+
+    /**
+     * reads a whole csv file into a heap buffer, the file is closed again when this returns
+     * @param fileName file path of the csv
+     * @return the bytes of the file, from 0 to limit
+     * @exception IOException if the file could not be read
+     */
+    private static ByteBuffer read(String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(fileName + " is too large to read");
+            }
+            ByteBuffer buf = ByteBuffer.allocate((int) size);
+            while (buf.hasRemaining() && channel.read(buf) != -1) {
+                // read until the buffer is full or the file ended early
+            }
+            buf.flip();
+            return buf;
+        }
+    }
+
+    /**
+     * splits a file into chunks that each start at the beginning of a line
+     * @param buf the bytes of the file
+     * @param limit size of the file
+     * @return start of every chunk, followed by limit
+     */
+    private static int[] chunks(ByteBuffer buf, int limit) {
+        int target = Math.max(MIN_CHUNK_BYTES, limit / (4 * ForkJoinPool.getCommonPoolParallelism()));
+        List<Integer> starts = new ArrayList<Integer>();
+        int start = 0;
+        while (start < limit) {
+            starts.add(start);
+            int end = limit - start <= target ? limit : start + target;
+            while (end < limit && buf.get(end - 1) != '\n') { // move the boundary to the start of the next line
+                end++;
+            }
+            start = end;
+        }
+        int[] bounds = new int[starts.size() + 1];
+        for (int i = 0; i < starts.size(); i++) {
+            bounds[i] = starts.get(i);
+        }
+        bounds[starts.size()] = limit;
+        return bounds;
+    }
+
+    /**
+     * reads the rows of a range of whole lines
+     * @param buf the bytes of the file
+     * @param from start of the first line
+     * @param to end of the range, the start of a line or the end of the file
+     * @return List of rows
+     */
+    private static List<String[]> readRange(ByteBuffer buf, int from, int to) {
+        List<String[]> rows = new ArrayList<String[]>();
+        scanLines(buf, from, to, row -> rows.add(row.toArray()));
+        return rows;
+    }
+
+    /**
+     * reads a csv file and calls the visitor for every row
+     * @param fileName file path of the csv
+     * @param visitor called with each row
+     * @exception IOException if the file could not be read
+     */
+    public static void forEachRow(String fileName, RowVisitor visitor) throws IOException {
+        ByteBuffer buf = read(fileName);
+        scanLines(buf, 0, buf.limit(), visitor);
+    }
+
+    /**
+     * calls the visitor for every line in a range of the file
+     * only absolute gets are used, so several ranges of the same buffer can be scanned at the same time
+     * @param buf the bytes of the file
+     * @param from start of the first line
+     * @param limit end of the range, the start of a line or the end of the file
+     * @param visitor called with each row
+     */
+    private static void scanLines(ByteBuffer buf, int from, int limit, RowVisitor visitor) {
+        Row row = new Row(buf);
+        int lineStart = from;
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && buf.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int next = lineEnd + 1;
+            if (lineEnd > lineStart && buf.get(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+            if (lineEnd > lineStart) {
+                row.scan(lineStart, lineEnd);
+                visitor.visit(row);
+            }
+            lineStart = next;
+        }
+    }
+
+    /**
+    * <h1>ChunkTask</h1>
+    * parses a range of chunks, splitting it in half until one chunk is left
+    */
+    private static final class ChunkTask extends RecursiveTask<List<String[]>> {
+        private static final long serialVersionUID = 1L;
+        private final ByteBuffer buf;
+        private final int[] bounds;
+        private final int first;
+        private final int last;
+
+        /**
+         * @param buf the bytes of the file
+         * @param bounds start of every chunk followed by the end of the file, from chunks()
+         * @param first first chunk to parse
+         * @param last last chunk to parse (exclusive), -1 for every chunk
+         */
+        private ChunkTask(ByteBuffer buf, int[] bounds, int first, int last) {
+            this.buf = buf;
+            this.bounds = bounds;
+            this.first = first;
+            this.last = last == -1 ? bounds.length - 1 : last;
+        }
+
+        /**
+         * @return rows of the chunks, in the order of the file
+         */
+        @Override
+        protected List<String[]> compute() {
+            if (last - first <= 1) {
+                return first < last ? readRange(buf, bounds[first], bounds[last]) : new ArrayList<String[]>();
+            }
+            int middle = (first + last) >>> 1;
+            ChunkTask right = new ChunkTask(buf, bounds, middle, last);
+            right.fork();
+            List<String[]> rows = new ChunkTask(buf, bounds, first, middle).compute();
+            rows.addAll(right.join());
+            return rows;
+        }
+    }
+
+    /**
+    * <h1>Row</h1>
+    * field boundaries of one line of the file, reused for every line
+    */
+    public static final class Row {
+        /**
+        * the bytes of the file
+        */
+        private final ByteBuffer buf;
+        /**
+        * start of every field in buf
+        */
+        private int[] starts = new int[32];
+        /**
+        * end (exclusive) of every field in buf
+        */
+        private int[] ends = new int[32];
+        /**
+        * number of fields in the line
+        */
+        private int count;
+        /**
+        * buffer to copy the bytes of a field into before decoding
+        */
+        private byte[] scratch = new byte[64];
+
+        private Row(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        /**
+         * finds the fields between two positions, same as String.split(",", -1)
+         * @param from start of the line
+         * @param to end of the line (exclusive)
+         */
+        private void scan(int from, int to) {
+            count = 0;
+            int start = from;
+            for (int i = from; i < to; i++) {
+                if (buf.get(i) == ',') {
+                    add(start, i);
+                    start = i + 1;
+                }
+            }
+            add(start, to);
+        }
+
+        /**
+         * records the boundaries of one field
+         * @param start start of the field
+         * @param end end of the field (exclusive)
+         */
+        private void add(int start, int end) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            starts[count] = start;
+            ends[count] = end;
+            count++;
+        }
+
+        /**
+         * @return number of fields in the line
+         */
+        public int size() {
+            return count;
+        }
+
+        /**
+         * materializes one field
+         * @param i field number
+         * @return the field as a String, "" for empty fields
+         */
+        public String field(int i) {
+            int len = ends[i] - starts[i];
+            if (len == 0) {
+                return "";
+            }
+            if (scratch.length < len) {
+                scratch = new byte[Math.max(len, scratch.length * 2)];
+            }
+            boolean ascii = true;
+            for (int j = 0; j < len; j++) {
+                byte b = buf.get(starts[i] + j);
+                scratch[j] = b;
+                ascii &= b >= 0;
+            }
+            return new String(scratch, 0, len, ascii ? StandardCharsets.ISO_8859_1 : CHARSET);
+        }
+
+        /**
+         * @return all fields of the line as Strings
+         */
+        public String[] toArray() {
+            String[] fields = new String[count];
+            for (int i = 0; i < count; i++) {
+                fields[i] = field(i);
+            }
+            return fields;
+        }
+    }
+}
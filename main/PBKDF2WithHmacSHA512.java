@@ -56,13 +56,37 @@ public final class PBKDF2WithHmacSHA512 {
 	 * The bigger the number the longer it'll take to a generate key. Note: When
 	 * user based performance is not an issue, a value of 10,000,000 is
 	 * recommended otherwise a minimum of 1000 recommended.
+	 * New and rehashed passwords use this count, it can be changed with the system property stars.pbkdf2.iterations.
 	 */
-	private static final int ITERATION_COUNT = 1000;
+	static final int ITERATION_COUNT = Integer.getInteger("stars.pbkdf2.iterations", 1000);
 
 	/**
-	 * The length of the derived key.
+	 * The length of the derived key in bits, for new and rehashed passwords.
+	 * It can be changed with the system property stars.pbkdf2.keylength.
 	 */
-	private static final int KEY_LENGTH = 64;
+	static final int KEY_LENGTH = Integer.getInteger("stars.pbkdf2.keylength", 64);
+
+	/**
+	 * The iteration count of passwords stored before the count was kept with every credential.
+	 */
+	static final int LEGACY_ITERATION_COUNT = 1000;
+
+	/**
+	 * The key length of passwords stored before the length was kept with every credential.
+	 */
+	static final int LEGACY_KEY_LENGTH = 64;
+
+	/**
+	 * The SecretKeyFactory of every thread, looked up once per thread instead of once per hash.
+	 * A SecretKeyFactory is not thread-safe, so each thread keeps its own.
+	 */
+	private static final ThreadLocal<SecretKeyFactory> FACTORY = new ThreadLocal<SecretKeyFactory>();
+
+	/**
+	 * The generator of the salts, shared by every thread. SecureRandom is thread-safe,
+	 * and SHA1PRNG seeds itself from the system the first time it is used.
+	 */
+	private static SecureRandom random;
 
 	/**
 	 * Private constructor to stop the class from being instantiated. 
@@ -87,9 +111,59 @@ public final class PBKDF2WithHmacSHA512 {
 	 *             If the derived key cannot be produced.
 	 */
 	public static byte[] hash(final String password, final byte[] salt) throws NoSuchAlgorithmException, InvalidKeySpecException {
-		final KeySpec keySpec = new PBEKeySpec(password.toCharArray(), salt, ITERATION_COUNT, KEY_LENGTH);
-		final SecretKeyFactory secretKeyfactory = SecretKeyFactory.getInstance(ALGORITHM);
-		return secretKeyfactory.generateSecret(keySpec).getEncoded();
+		return hash(password, salt, ITERATION_COUNT, KEY_LENGTH);
+	}
+
+	/**
+	 * This method returns an encrypted byte[] of the password, derived with the given cost.
+	 * 
+	 * @param password
+	 *            The password to encrypt.
+	 * @param salt
+	 *            The random data used for the hashing function.
+	 * @param iterations
+	 *            The iteration count the password is hashed with.
+	 * @param keyLength
+	 *            The length of the derived key in bits.
+	 * @return The encrypted password as a byte[].
+	 * @throws NoSuchAlgorithmException
+	 *             If the cryptographic algorithm is unavailable.
+	 * @throws InvalidKeySpecException
+	 *             If the derived key cannot be produced.
+	 */
+	public static byte[] hash(final String password, final byte[] salt, final int iterations, final int keyLength) throws NoSuchAlgorithmException, InvalidKeySpecException {
+		final KeySpec keySpec = new PBEKeySpec(password.toCharArray(), salt, iterations, keyLength);
+		return factory().generateSecret(keySpec).getEncoded();
+	}
+
+	/**
+	 * Gets the SecretKeyFactory of the calling thread, looking it up the first time.
+	 * 
+	 * @return The SecretKeyFactory of ALGORITHM for this thread.
+	 * @throws NoSuchAlgorithmException
+	 *             If the cryptographic algorithm is unavailable.
+	 */
+	private static SecretKeyFactory factory() throws NoSuchAlgorithmException {
+		SecretKeyFactory secretKeyfactory = FACTORY.get();
+		if (secretKeyfactory == null) {
+			secretKeyfactory = SecretKeyFactory.getInstance(ALGORITHM);
+			FACTORY.set(secretKeyfactory);
+		}
+		return secretKeyfactory;
+	}
+
+	/**
+	 * Gets the shared SecureRandom, creating it the first time.
+	 * 
+	 * @return The SHA1PRNG SecureRandom used for every salt.
+	 * @throws NoSuchAlgorithmException
+	 *             If SHA1PRNG does not exist on the system.
+	 */
+	private static synchronized SecureRandom random() throws NoSuchAlgorithmException {
+		if (random == null) {
+			random = SecureRandom.getInstance("SHA1PRNG");
+		}
+		return random;
 	}
 
 	/**
@@ -102,7 +176,7 @@ public final class PBKDF2WithHmacSHA512 {
 	 */
 	public static byte[] salt() throws NoSuchAlgorithmException {
 		final byte[] salt = new byte[16];
-		SecureRandom.getInstance("SHA1PRNG").nextBytes(salt);
+		random().nextBytes(salt);
 		return salt;
 	}
 	
@@ -159,4 +233,40 @@ public final class PBKDF2WithHmacSHA512 {
 	public static boolean authenticate(final String attemptedPassword, final byte[] salt, final byte[] hashedPassword) throws Exception {
 		return Arrays.equals(hash(attemptedPassword, salt), hashedPassword);
 	}
+
+	/**
+	 * Checks the attemptedPassword against a hashed password that was stored
+	 * with its own iteration count and key length.
+	 * 
+	 * @param attemptedPassword
+	 *            The password entered by the user.
+	 * @param salt
+	 *            The salt to use
+	 * @param hashedPassword
+	 *            The hashed password stored on the database.
+	 * @param iterations
+	 *            The iteration count the stored password was hashed with.
+	 * @param keyLength
+	 *            The key length in bits the stored password was hashed with.
+	 * @return If the attempted password matched the hashed password.
+	 * @throws Exception
+	 *             If the algorithm cannot be performed.
+	 */
+	public static boolean authenticate(final String attemptedPassword, final byte[] salt, final byte[] hashedPassword,
+			final int iterations, final int keyLength) throws Exception {
+		return Arrays.equals(hash(attemptedPassword, salt, iterations, keyLength), hashedPassword);
+	}
+
+	/**
+	 * Checks if a stored password was hashed with the current ITERATION_COUNT and KEY_LENGTH.
+	 * 
+	 * @param iterations
+	 *            The iteration count the stored password was hashed with.
+	 * @param keyLength
+	 *            The key length in bits the stored password was hashed with.
+	 * @return false if the password should be hashed again with the current cost.
+	 */
+	public static boolean isCurrent(final int iterations, final int keyLength) {
+		return iterations == ITERATION_COUNT && keyLength == KEY_LENGTH;
+	}
 }
\ No newline at end of file
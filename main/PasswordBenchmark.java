@@ -0,0 +1,137 @@
+import java.lang.management.ManagementFactory;
+import java.security.SecureRandom;
+import java.security.spec.KeySpec;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+* <h1>PasswordBenchmark</h1>
+* Compares hashing and salting with a provider lookup on every call (SecretKeyFactory.getInstance,
+* SecureRandom.getInstance), which is what PBKDF2WithHmacSHA512 used to do, with the cached thread-local
+* factory and the shared SecureRandom it uses now.
+* <p>
+* The lookup variants measure the provider lookup on its own, which is the overhead the cache removes from every hash.
+* Time and bytes allocated per operation are printed.
+* run with: java PasswordBenchmark [rounds], defaults to 2000 rounds
+* @version 1.0
+* @since   2020-25-11
+*/
+public class PasswordBenchmark {
+    /**
+    * algorithm of PBKDF2WithHmacSHA512
+    */
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA512";
+    /**
+    * keeps the results alive so the JIT cannot drop the work
+    */
+    private static long blackhole = 0;
+
+    /**
+     * @param args number of rounds
+     * @exception Exception if an algorithm is not available
+     */
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        byte[] salt = PBKDF2WithHmacSHA512.salt();
+
+        for (int warmup = 0; warmup < 3; warmup++) {
+            hashLookup(salt, rounds / 4);
+            hashCached(salt, rounds / 4);
+            saltLookup(rounds);
+            saltShared(rounds);
+            lookupOnly(rounds);
+        }
+        report("hash getInstance/call", rounds, () -> hashLookup(salt, rounds));
+        report("hash cached factory", rounds, () -> hashCached(salt, rounds));
+        report("lookup SecretKeyFactory", rounds, () -> lookupOnly(rounds));
+        report("salt getInstance/call", rounds, () -> saltLookup(rounds));
+        report("salt shared SecureRandom", rounds, () -> saltShared(rounds));
+        System.out.println("(" + blackhole + ")");
+    }
+
+    /**
+     * the old hash: looks up the SecretKeyFactory for every password
+     * @param salt salt of the password
+     * @param rounds number of hashes
+     * @exception Exception if the algorithm is not available
+     */
+    private static void hashLookup(byte[] salt, int rounds) throws Exception {
+        for (int r = 0; r < rounds; r++) {
+            KeySpec keySpec = new PBEKeySpec("password".toCharArray(), salt, 1000, 64);
+            blackhole += SecretKeyFactory.getInstance(ALGORITHM).generateSecret(keySpec).getEncoded()[0];
+        }
+    }
+
+    /**
+     * the hash through the cached factory of PBKDF2WithHmacSHA512
+     * @param salt salt of the password
+     * @param rounds number of hashes
+     * @exception Exception if the algorithm is not available
+     */
+    private static void hashCached(byte[] salt, int rounds) throws Exception {
+        for (int r = 0; r < rounds; r++) {
+            blackhole += PBKDF2WithHmacSHA512.hash("password", salt)[0];
+        }
+    }
+
+    /**
+     * only the provider lookup the old hash did before deriving the key
+     * @param rounds number of lookups
+     * @exception Exception if the algorithm is not available
+     */
+    private static void lookupOnly(int rounds) throws Exception {
+        for (int r = 0; r < rounds; r++) {
+            blackhole += SecretKeyFactory.getInstance(ALGORITHM).hashCode();
+        }
+    }
+
+    /**
+     * the old salt: a new SHA1PRNG, seeded from the system, for every salt
+     * @param rounds number of salts
+     * @exception Exception if SHA1PRNG is not available
+     */
+    private static void saltLookup(int rounds) throws Exception {
+        byte[] salt = new byte[16];
+        for (int r = 0; r < rounds; r++) {
+            SecureRandom.getInstance("SHA1PRNG").nextBytes(salt);
+            blackhole += salt[0];
+        }
+    }
+
+    /**
+     * the salt from the shared SecureRandom of PBKDF2WithHmacSHA512
+     * @param rounds number of salts
+     * @exception Exception if SHA1PRNG is not available
+     */
+    private static void saltShared(int rounds) throws Exception {
+        for (int r = 0; r < rounds; r++) {
+            blackhole += PBKDF2WithHmacSHA512.salt()[0];
+        }
+    }
+
+    /**
+     * runs one variant and prints its time and allocation per operation
+     * @param name name of the variant
+     * @param ops number of operations
+     * @param run the variant
+     * @exception Exception if an algorithm is not available
+     */
+    private static void report(String name, long ops, Run run) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+        long bytesBefore = threads.getThreadAllocatedBytes(id);
+        long start = System.nanoTime();
+        run.run();
+        long nanos = System.nanoTime() - start;
+        long bytes = threads.getThreadAllocatedBytes(id) - bytesBefore;
+        System.out.printf("%-26s %10.1f ns/op %10.1f bytes/op%n", name, nanos / (double) ops, bytes / (double) ops);
+    }
+
+    /**
+    * one benchmark variant
+    */
+    private interface Run {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,222 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+* <h1>RowCache</h1>
+* Shared read-through cache of parsed rows in front of the lookups by key, keyed by file and key.
+* <p>
+* Holds at most CAPACITY rows. The entries are spread by key over SEGMENTS segments, each an access-ordered
+* LinkedHashMap with its own lock and an equal share of CAPACITY, and the least recently used row of a segment
+* is dropped when a new row does not fit. Lookups and changes of keys in different segments do not wait for each other.
+* Lookups that found no row are cached as well, so a repeated miss does not read the file again.
+* The storage engines drop the entries of every row they change (CsvTable the keys of the old and the new row,
+* JdbcStorageEngine every entry of the table), so the cache is never stale.
+* A change only drops the entries of its own keys, each under the lock of its segment only. The lookups by ANY_COLUMN
+* cannot be told apart by key, so their entries carry the generation of the file and every change leaves them behind
+* at once; the same is done for every entry of a file by invalidateAll. Entries left behind are never found again
+* and make room as the least recently used ones.
+* Entries are kept by the file path as it is passed, the same path has to be used for lookups and changes.
+* e.g. String[] row = RowCache.get(fileName, 2, userName, () -&gt; readRow(fileName, userName));
+* <p>
+* the size can be changed with the system property stars.rowcache.size, 0 turns the cache off,
+* the number of segments with stars.rowcache.segments
+* @version 1.0
+* @since   2020-25-11
+*/
+public class RowCache {
+    /**
+    * maximum number of cached rows
+    */
+    static final int CAPACITY = Integer.getInteger("stars.rowcache.size", 1024);
+    /**
+    * number of segments, at most one per row of CAPACITY
+    */
+    static final int SEGMENTS = Math.max(1, Math.min(Integer.getInteger("stars.rowcache.segments", 16), CAPACITY));
+    /**
+    * column of lookups that match a value in any column, eg. StudentDatabaseManager.checkStudentExist
+    */
+    static final int ANY_COLUMN = -1;
+    /**
+    * cached value of a lookup that found no row
+    */
+    private static final String[] MISSING = new String[0];
+
+    /**
+    * the segments, an entry belongs to segments[hash of its key mod SEGMENTS]
+    */
+    private static final Segment[] segments = new Segment[SEGMENTS];
+    static {
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(Math.max(CAPACITY, 0) / SEGMENTS);
+        }
+    }
+    /**
+    * generation and cached columns, by file
+    */
+    private static final Map<String, FileState> files = new ConcurrentHashMap<String, FileState>();
+    /**
+    * numbers the FileStates
+    */
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+
+    /**
+     * gets a copy of the row with a key, reading it with loader if it is not cached
+     * @param fileName file path of the table
+     * @param col column of the key eg. 2 for Username, ANY_COLUMN if the key may be in any column
+     * @param key key to look for eg. "DON001"
+     * @param loader reads the row, returns null if there is none
+     * @return copy of the row, null if there is none
+     */
+    public static String[] get(String fileName, int col, String key, Supplier<String[]> loader) {
+        if (CAPACITY <= 0) {
+            return loader.get();
+        }
+        FileState file = files.computeIfAbsent(fileName, f -> new FileState());
+        long seen = file.generation.get();
+        String entry = col == ANY_COLUMN ? file.entry(ANY_COLUMN + "@" + seen, key) : file.entry(Integer.toString(col), key);
+        Segment segment = segmentOf(entry);
+        synchronized (segment) {
+            String[] row = segment.rows.get(entry);
+            if (row != null) {
+                return row == MISSING ? null : row.clone();
+            }
+        }
+        String[] row = loader.get();
+        if (col != ANY_COLUMN) {
+            file.columns.add(col);
+        }
+        synchronized (segment) {
+            if (file.generation.get() == seen) { // nothing changed while the row was read
+                segment.rows.put(entry, row == null ? MISSING : row.clone());
+            }
+        }
+        return row;
+    }
+
+    /**
+     * drops the entries of a row that was added, changed or removed
+     * @param fileName file path of the table
+     * @param row the row, before or after the change
+     */
+    public static void invalidate(String fileName, String[] row) {
+        if (CAPACITY <= 0 || row == null) {
+            return;
+        }
+        FileState file = files.get(fileName);
+        if (file == null) {
+            return;
+        }
+        file.generation.incrementAndGet(); // also leaves the ANY_COLUMN entries behind, they cannot tell which of them the row answers
+        for (int col : file.columns) {
+            if (col < row.length) {
+                remove(file.entry(Integer.toString(col), row[col]));
+            }
+        }
+    }
+
+    /**
+     * drops the entry of one key
+     * @param fileName file path of the table
+     * @param col column of the key
+     * @param key key of the row that changed
+     */
+    public static void invalidate(String fileName, int col, String key) {
+        if (CAPACITY <= 0) {
+            return;
+        }
+        FileState file = files.get(fileName);
+        if (file == null) {
+            return;
+        }
+        file.generation.incrementAndGet();
+        remove(file.entry(Integer.toString(col), key));
+    }
+
+    /**
+     * drops every entry of a table
+     * @param fileName file path of the table
+     */
+    public static void invalidateAll(String fileName) {
+        if (CAPACITY <= 0) {
+            return;
+        }
+        FileState file = files.remove(fileName);
+        if (file != null) {
+            file.generation.incrementAndGet(); // a lookup still holding it does not cache what it read
+        }
+    }
+
+    /**
+     * removes one entry under the lock of its segment
+     * @param entry key of the entry
+     */
+    private static void remove(String entry) {
+        Segment segment = segmentOf(entry);
+        synchronized (segment) {
+            segment.rows.remove(entry);
+        }
+    }
+
+    /**
+     * @param entry key of an entry
+     * @return the segment of the entry
+     */
+    private static Segment segmentOf(String entry) {
+        int h = entry.hashCode();
+        return segments[Math.floorMod(h ^ (h >>> 16), SEGMENTS)];
+    }
+
+    /**
+    * <h1>Segment</h1>
+    * one share of the cache, rows by entry key in order of last use, guarded by the segment itself
+    */
+    private static final class Segment {
+        private final LinkedHashMap<String, String[]> rows;
+
+        /**
+         * @param capacity maximum number of rows of this segment
+         */
+        private Segment(int capacity) {
+            rows = new LinkedHashMap<String, String[]>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String[]> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+    }
+
+    /**
+    * <h1>FileState</h1>
+    * state of the cached rows of one file
+    */
+    private static final class FileState {
+        /**
+        * counts the invalidations, a row read while this changed is not cached as it may already be stale
+        */
+        final AtomicLong generation = new AtomicLong();
+        /**
+        * columns that have cached rows, the keys of a changed row are dropped in each of them
+        */
+        final Set<Integer> columns = ConcurrentHashMap.newKeySet();
+        /**
+        * entries of this state are only found through it, so a file dropped by invalidateAll starts again without them
+        */
+        final String prefix = Long.toString(NEXT_ID.incrementAndGet());
+
+        /**
+         * @param column column of the key as text, for ANY_COLUMN with the generation eg. "-1@4"
+         * @param key key of the row
+         * @return key of the entry eg. "1|2|DON001"
+         */
+        String entry(String column, String key) {
+            return prefix + "|" + column + "|" + key;
+        }
+    }
+}
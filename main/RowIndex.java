@@ -0,0 +1,123 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+* <h1>RowIndex</h1>
+* Primary-key index of a CsvTable, from the value of one or more key columns to the rows with that value.
+* <p>
+* The index maps keys to row numbers and is kept in sync by every CsvTable mutation, so a lookup by key is one
+* hash lookup instead of a scan. A key that is in several rows maps to all of them in row order, so a lookup
+* through the index finds the same rows as a scan.
+* The index is only kept in memory: the tables are loaded and the EnrollmentJournal is replayed at start up,
+* before the first login, and a row read from the csv itself could miss changes that are only in the journal.
+* e.g. Username (column 2), Matriculation Number (column 6), CourseID+Index (columns 0 and 2)
+* @version 1.0
+* @since   2020-25-11
+*/
+public class RowIndex {
+    /**
+    * key columns of this index
+    */
+    private final int[] cols;
+    /**
+    * key to row numbers, in ascending order
+    */
+    private final Map<String, List<Integer>> rows = new HashMap<String, List<Integer>>();
+
+    /**
+     * creates an index over the key columns and fills it with the rows
+     * @param cols key columns eg. {0, 2} for CourseID+Index
+     * @param table rows of the table
+     */
+    public RowIndex(int[] cols, List<String[]> table) {
+        this.cols = cols.clone();
+        for (int i = 0; i < table.size(); i++) {
+            String key = key(table.get(i), cols);
+            if (key != null) {
+                rows.computeIfAbsent(key, k -> new ArrayList<Integer>(1)).add(i);
+            }
+        }
+    }
+
+    /**
+     * @param cols key columns
+     * @return true if this index is over exactly these key columns
+     */
+    public boolean covers(int[] cols) {
+        return Arrays.equals(this.cols, cols);
+    }
+
+    /**
+     * @param key key to look for eg. "RA1001,1201"
+     * @return row numbers with the key in ascending order, empty if the key is not in the table
+     */
+    public List<Integer> get(String key) {
+        List<Integer> found = rows.get(key);
+        return found == null ? Collections.<Integer>emptyList() : found;
+    }
+
+    /**
+     * moves the key of a row that was changed, nothing is changed in the index if the key stays the same
+     * @param row row number that was changed
+     * @param oldRow row before the change, null if the row was added
+     * @param newRow row after the change
+     */
+    public void update(int row, String[] oldRow, String[] newRow) {
+        String oldKey = oldRow == null ? null : key(oldRow, cols);
+        String newKey = key(newRow, cols);
+        if (oldKey != null && !oldKey.equals(newKey)) {
+            List<Integer> found = rows.get(oldKey);
+            if (found != null) {
+                found.remove(Integer.valueOf(row));
+                if (found.isEmpty()) {
+                    rows.remove(oldKey);
+                }
+            }
+        }
+        if (newKey != null) {
+            List<Integer> found = rows.computeIfAbsent(newKey, k -> new ArrayList<Integer>(1));
+            int at = Collections.binarySearch(found, row);
+            if (at < 0) {
+                found.add(-at - 1, row);
+            }
+        }
+    }
+
+    /**
+     * @param oldRow row before a change
+     * @param newRow row after the change
+     * @return true if the change gives the row another key in this index
+     */
+    public boolean moves(String[] oldRow, String[] newRow) {
+        String oldKey = key(oldRow, cols);
+        String newKey = key(newRow, cols);
+        return oldKey == null ? newKey != null : !oldKey.equals(newKey);
+    }
+
+    /**
+     * builds the key of a row
+     * @param row row of the csv
+     * @param cols key columns
+     * @return values of the key columns joined by commas, null if the row is too short
+     */
+    public static String key(String[] row, int[] cols) {
+        if (cols.length == 1) {
+            return cols[0] < row.length ? row[cols[0]] : null;
+        }
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < cols.length; i++) {
+            if (cols[i] >= row.length) {
+                return null;
+            }
+            if (i > 0) {
+                key.append(",");
+            }
+            key.append(row[cols[i]]);
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,227 @@
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+* <h1>SessionStore</h1>
+* Opaque session tokens, issued after one successful login, so a later check of the same user
+* (eg. the swap a peer agreed to being confirmed) looks up the token instead of deriving the password again.
+* <p>
+* A token is 32 random bytes, Base64 encoded, and is valid for TTL_MILLIS after it was issued.
+* A token can be limited to one scope (eg. one index swap), it is then only valid for that scope, and consume()
+* ends it the first time it is used, so one login is consent for exactly one action.
+* validate(token) is one lookup in a ConcurrentHashMap, an expired token is removed when it is looked up and
+* every other expired token is removed at most once per TTL_MILLIS when a new one is issued.
+* Changing the password of a user ends every session of the user.
+* <p>
+* the lifetime can be changed with the system property stars.session.ttl.ms
+* e.g. String token = SessionStore.login("DON001", password, "student", "swap,U2000001C,CZ2002,10002,10003");
+* ... SessionStore.consume(token, "DON001", "student", "swap,U2000001C,CZ2002,10002,10003")
+* @version 1.0
+* @since   2020-25-11
+*/
+public class SessionStore {
+    /**
+    * how long (in milliseconds) a token is valid after it was issued
+    */
+    static final long TTL_MILLIS = Long.getLong("stars.session.ttl.ms", 15 * 60 * 1000L);
+    /**
+    * generator of the tokens, SecureRandom is thread-safe
+    */
+    private static final SecureRandom random = new SecureRandom();
+    /**
+    * sessions by token
+    */
+    private static final Map<String, Session> sessions = new ConcurrentHashMap<String, Session>();
+    /**
+    * time expired sessions were last removed
+    */
+    private static volatile long lastSweep = System.currentTimeMillis();
+
+    /**
+     * verifies a login through Login.verifyLogin and starts a session for the user
+     * @param userName String to identify user
+     * @param userPass String password of user
+     * @param userDomain String either student or admin
+     * @return token of the new session, null if the login failed
+     */
+    public static String login(String userName, String userPass, String userDomain) {
+        return login(userName, userPass, userDomain, null);
+    }
+
+    /**
+     * verifies a login through Login.verifyLogin and starts a session for the user that is only valid for one scope
+     * @param userName String to identify user
+     * @param userPass String password of user
+     * @param userDomain String either student or admin
+     * @param scope what the session may be used for eg. one index swap, null for anything
+     * @return token of the new session, null if the login failed
+     */
+    public static String login(String userName, String userPass, String userDomain, String scope) {
+        return Login.verifyLogin(userName, userPass, userDomain) ? issue(userName, userDomain, scope) : null;
+    }
+
+    /**
+     * starts a session for a user who was just authenticated
+     * @param userName username of the user
+     * @param userDomain domain of the user, student or admin
+     * @return token of the new session
+     */
+    public static String issue(String userName, String userDomain) {
+        return issue(userName, userDomain, null);
+    }
+
+    /**
+     * starts a session for a user who was just authenticated, only valid for one scope
+     * @param userName username of the user
+     * @param userDomain domain of the user, student or admin
+     * @param scope what the session may be used for, null for anything
+     * @return token of the new session
+     */
+    public static String issue(String userName, String userDomain, String scope) {
+        long now = System.currentTimeMillis();
+        if (now - lastSweep >= TTL_MILLIS) {
+            lastSweep = now;
+            sessions.values().removeIf(session -> session.expired(now));
+        }
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        sessions.put(token, new Session(userName, userDomain, scope, now + TTL_MILLIS));
+        return token;
+    }
+
+    /**
+     * looks up a session
+     * @param token token of the session, may be null
+     * @return Session of the token, null if there is none or it expired
+     */
+    public static Session validate(String token) {
+        if (token == null) {
+            return null;
+        }
+        Session session = sessions.get(token);
+        if (session != null && session.expired(System.currentTimeMillis())) {
+            sessions.remove(token, session);
+            return null;
+        }
+        return session;
+    }
+
+    /**
+     * checks that a token belongs to a live session of a user
+     * @param token token of the session, may be null
+     * @param userName username the session has to belong to
+     * @param userDomain domain the session has to belong to
+     * @return true if the token is valid for the user
+     */
+    public static boolean isValid(String token, String userName, String userDomain) {
+        return isValid(token, userName, userDomain, null);
+    }
+
+    /**
+     * checks that a token belongs to a live session of a user for a scope, without using it up
+     * @param token token of the session, may be null
+     * @param userName username the session has to belong to
+     * @param userDomain domain the session has to belong to
+     * @param scope scope the session has to be limited to, null for a session without a scope
+     * @return true if the token is valid for the user and the scope
+     */
+    public static boolean isValid(String token, String userName, String userDomain, String scope) {
+        return matches(validate(token), userName, userDomain, scope);
+    }
+
+    /**
+     * uses up a token: checks it like isValid and ends its session, a token can only be consumed once
+     * @param token token of the session, may be null
+     * @param userName username the session has to belong to
+     * @param userDomain domain the session has to belong to
+     * @param scope scope the session has to be limited to
+     * @return true if the token was valid and is now used up, false if it was not valid or already used
+     */
+    public static boolean consume(String token, String userName, String userDomain, String scope) {
+        Session session = validate(token);
+        return matches(session, userName, userDomain, scope) && sessions.remove(token, session);
+    }
+
+    /**
+     * @param session session, may be null
+     * @param userName username the session has to belong to
+     * @param userDomain domain the session has to belong to
+     * @param scope scope the session has to be limited to
+     * @return true if the session belongs to the user and is limited to the scope
+     */
+    private static boolean matches(Session session, String userName, String userDomain, String scope) {
+        return session != null && session.getUserName().equals(userName) && session.getUserDomain().equals(userDomain)
+                && Objects.equals(session.getScope(), scope);
+    }
+
+    /**
+     * ends a session
+     * @param token token of the session
+     */
+    public static void invalidate(String token) {
+        if (token != null) {
+            sessions.remove(token);
+        }
+    }
+
+    /**
+     * ends every session of a user, eg. after the password was changed
+     * @param userName username of the user
+     * @param userDomain domain of the user
+     */
+    public static void invalidateUser(String userName, String userDomain) {
+        sessions.values().removeIf(session -> session.getUserName().equals(userName) && session.getUserDomain().equals(userDomain));
+    }
+
+    /**
+    * <h1>Session</h1>
+    * the user of a token, what it may be used for and when the token expires
+    */
+    public static final class Session {
+        private final String userName;
+        private final String userDomain;
+        private final String scope;
+        private final long expiresAt;
+
+        private Session(String userName, String userDomain, String scope, long expiresAt) {
+            this.userName = userName;
+            this.userDomain = userDomain;
+            this.scope = scope;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getUserName() {
+            return userName;
+        }
+
+        public String getUserDomain() {
+            return userDomain;
+        }
+
+        /**
+         * @return what the session may be used for, null for anything
+         */
+        public String getScope() {
+            return scope;
+        }
+
+        /**
+         * @return time the session expires, in milliseconds since the epoch
+         */
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+
+        /**
+         * @param now current time in milliseconds
+         * @return true if the session expired
+         */
+        private boolean expired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
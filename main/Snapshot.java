@@ -0,0 +1,421 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+* <h1>Snapshot</h1>
+* Binary snapshot of the whole object graph (courses, lessons, students and their enrollments),
+* so startup does not have to parse the csv files and rebuild every object from text.
+* <p>
+* The snapshot is written on clean shutdown from the tables themselves, so it holds exactly what the csv files hold.
+* All strings are stored once in a string table and referenced by number, lessons are packed into one int
+* (day, start minute, end minute) and enrollments are references into the course list.
+* It is read with one bulk read into a ByteBuffer.
+* <p>
+* The length and last modified time of every source file are stored with the snapshot, and the payload has a CRC32.
+* The snapshot is only used while every source file still matches and the enrollment journal is empty,
+* otherwise the managers fall back to the csv files.
+* No snapshot is used when the tables are kept in the embedded database, the stamps cannot tell if it changed.
+* @version 1.0
+* @since   2020-25-11
+*/
+public class Snapshot {
+    /**
+    * creates logger instance of snapshot to log exceptions and other errors
+    */
+    private static Logger logger = Logger.getLogger(Snapshot.class.getName());
+    /**
+    * file path of the snapshot
+    */
+    static final String SNAPSHOTFILE = "STARS.snapshot";
+    /**
+    * first int of every snapshot file
+    */
+    private static final int MAGIC = 0x53544152;
+    /**
+    * format version, snapshots of another version are ignored
+    */
+    private static final int VERSION = 1;
+    /**
+    * days as they are written in COURSE.csv, the position is the DayOfWeek value
+    */
+    private static final List<String> DAYS = Arrays.asList("", "Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday", "Sunday");
+    /**
+    * snapshot loaded by this process, null if there is none or it could not be used
+    */
+    private static Snapshot loaded = null;
+    /**
+    * set once loading the snapshot was tried
+    */
+    private static boolean tried = false;
+
+    /**
+    * length and last modified time of every source file the snapshot was written from
+    */
+    private final long[] stamps;
+    /**
+    * Course objects of the snapshot
+    */
+    private final List<Course> courses;
+    /**
+    * Student objects of the snapshot, linked to courses
+    */
+    private final List<Student> students;
+
+    private Snapshot(long[] stamps, List<Course> courses, List<Student> students) {
+        this.stamps = stamps;
+        this.courses = courses;
+        this.students = students;
+    }
+
+    /**
+     * @return file paths of the tables the snapshot is made of
+     */
+    private static String[] sources() {
+        return new String[] { CourseDatabaseManager.FILEOFALLCOURSES, StudentDatabaseManager.STUDENTFILE };
+    }
+
+    /**
+     * gets the courses of the snapshot, the same objects every time while the snapshot is current
+     * @return List of Course objects, null if there is no current snapshot
+     */
+    public static synchronized List<Course> courses() {
+        Snapshot snapshot = current();
+        return snapshot == null ? null : snapshot.courses;
+    }
+
+    /**
+     * gets the students of the snapshot, linked to the objects returned by courses()
+     * @return List of Student objects, null if there is no current snapshot
+     */
+    public static synchronized List<Student> students() {
+        Snapshot snapshot = current();
+        return snapshot == null ? null : snapshot.students;
+    }
+
+    /**
+     * loads the snapshot the first time, and checks that the source files did not change since
+     * @return the snapshot, null if there is none or it is stale
+     */
+    private static Snapshot current() {
+        if (StorageEngine.isEmbedded()) {
+            return null;
+        }
+        if (!tried) {
+            tried = true;
+            loaded = load(SNAPSHOTFILE);
+        }
+        if (loaded != null && !Arrays.equals(loaded.stamps, stamps(sources()))) {
+            loaded = null; // the csv files changed, from now on they are the source
+        }
+        return loaded;
+    }
+
+    /**
+     * @param files file paths
+     * @return length and last modified time of every file, followed by the length of the enrollment journal
+     */
+    private static long[] stamps(String[] files) {
+        long[] stamps = new long[files.length * 2 + 1];
+        for (int i = 0; i < files.length; i++) {
+            File f = new File(files[i]);
+            stamps[2 * i] = f.length();
+            stamps[2 * i + 1] = f.lastModified();
+        }
+        stamps[stamps.length - 1] = new File(StudentDatabaseManager.JOURNALFILE).length();
+        return stamps;
+    }
+
+    /**
+     * writes a snapshot of the course and student tables, should be called on clean shutdown
+     * after the enrollment journal is compacted and every table is flushed
+     * nothing is written if the tables change while the snapshot is made
+     */
+    public static void save() {
+        if (StorageEngine.isEmbedded()) {
+            return;
+        }
+        String[] sources = sources();
+        long[] before = stamps(sources);
+        if (before[before.length - 1] != 0) {
+            logger.log(Level.FINE, "Enrollment journal is not compacted, no snapshot written (Snapshot -> save)");
+            return;
+        }
+        File tempFile = new File(SNAPSHOTFILE + ".tmp");
+        try {
+            byte[] payload = encode(CsvTable.of(sources[0]).rows(), CsvTable.of(sources[1]).rows());
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(tempFile.toPath()))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(before.length);
+                for (long stamp : before) {
+                    out.writeLong(stamp);
+                }
+                out.writeLong(crc.getValue());
+                out.writeInt(payload.length);
+                out.write(payload);
+            }
+            if (!Arrays.equals(before, stamps(sources))) {
+                logger.log(Level.FINE, "Tables changed while the snapshot was written (Snapshot -> save)");
+                tempFile.delete();
+                return;
+            }
+            Files.move(tempFile.toPath(), Paths.get(SNAPSHOTFILE), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "Could not write " + SNAPSHOTFILE + " (Snapshot -> save)", e);
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * encodes the rows of the tables in the same way the managers read them
+     * @param courseRows rows of COURSE.csv, row 0 is the header
+     * @param studentRows rows of the student table, row 0 is the header
+     * @return payload of the snapshot
+     * @exception IOException never, the payload is written into memory
+     */
+    private static byte[] encode(List<String[]> courseRows, List<String[]> studentRows) throws IOException {
+        Map<String, Integer> strings = new HashMap<String, Integer>();
+        List<String> stringTable = new ArrayList<String>();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(body);
+
+        Map<String, Integer> coursePositions = new HashMap<String, Integer>();
+        List<String[]> courseMeta = new ArrayList<String[]>();
+        for (int i = 1; i < courseRows.size(); i++) {
+            if (courseRows.get(i).length > 1) { // same rows as CourseDatabaseManager.createCourse
+                courseMeta.add(courseRows.get(i));
+            }
+        }
+        out.writeInt(courseMeta.size());
+        for (String[] metadata : courseMeta) {
+            int courseIndex = Integer.parseInt(metadata[2]);
+            coursePositions.putIfAbsent(metadata[0] + "," + courseIndex, coursePositions.size());
+            String[] vac = metadata[3].split("/");
+            out.writeInt(ref(metadata[0], strings, stringTable));
+            out.writeInt(ref(metadata[1], strings, stringTable));
+            out.writeInt(courseIndex);
+            out.writeInt(Integer.parseInt(vac[0]));
+            out.writeInt(Integer.parseInt(vac[1]));
+            out.writeInt(ref(metadata[7], strings, stringTable));
+            out.writeInt(Integer.parseInt(metadata[8]));
+            List<String> sessions = new ArrayList<String>();
+            for (int j = 4; j <= 6; j++) {
+                if (!metadata[j].equals("")) {
+                    sessions.add(metadata[j]);
+                }
+            }
+            if (sessions.size() < 3) {
+                throw new IllegalStateException(metadata[0] + "/" + courseIndex + " does not have 3 sessions");
+            }
+            out.writeInt(3); // the csv constructor of CourseTimeTable uses the first 3 sessions
+            for (int j = 0; j < 3; j++) {
+                String[] lesson = sessions.get(j).split("/");
+                out.writeInt(ref(lesson[0], strings, stringTable));
+                out.writeInt(ref(lesson[1], strings, stringTable));
+                out.writeInt(packLesson(DAYS.indexOf(lesson[2]), LocalTime.parse(lesson[3]), LocalTime.parse(lesson[4])));
+            }
+        }
+
+        List<String[]> studentMeta = new ArrayList<String[]>();
+        for (int i = 1; i < studentRows.size(); i++) {
+            if (studentRows.get(i).length > 1) { // same rows as StudentDatabaseManager.createStudent
+                studentMeta.add(studentRows.get(i));
+            }
+        }
+        out.writeInt(studentMeta.size());
+        int firstSlot = DatabaseManager.FIRST_SLOT_COLUMN;
+        int auColumn = firstSlot + 2 * DatabaseManager.SLOTS;
+        for (String[] metadata : studentMeta) {
+            for (int j = 0; j <= 6; j++) {
+                out.writeInt(ref(metadata[j], strings, stringTable));
+            }
+            List<Integer> enrolled = new ArrayList<Integer>();
+            int au = 0;
+            if (metadata.length > firstSlot) {
+                List<String> registered = new ArrayList<String>();
+                for (int j = firstSlot; j < Math.min(auColumn, metadata.length); j++) {
+                    if (!metadata[j].equals("") && !metadata[j].equals(" ")) {
+                        registered.add(metadata[j]);
+                    }
+                }
+                for (int j = 0; j + 1 < registered.size(); j += 2) {
+                    Integer position = coursePositions.get(registered.get(j) + "," + Integer.parseInt(registered.get(j + 1)));
+                    if (position == null) {
+                        throw new IllegalStateException(metadata[6] + " takes " + registered.get(j) + " which does not exist");
+                    }
+                    enrolled.add(position);
+                }
+                au = registered.isEmpty() ? 0 : Integer.parseInt(metadata[auColumn]);
+            }
+            out.writeInt(au);
+            out.writeInt(enrolled.size());
+            for (int position : enrolled) {
+                out.writeInt(position);
+            }
+        }
+
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(payload);
+        header.writeInt(stringTable.size());
+        for (String s : stringTable) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            header.writeInt(bytes.length);
+            header.write(bytes);
+        }
+        body.writeTo(payload);
+        return payload.toByteArray();
+    }
+
+    /**
+     * reads a snapshot file and rebuilds the objects
+     * @param fileName file path of the snapshot
+     * @return the snapshot, null if the file is missing, stale, from another version or corrupt
+     */
+    private static Snapshot load(String fileName) {
+        if (!new File(fileName).exists()) {
+            return null;
+        }
+        ByteBuffer buf;
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            buf = ByteBuffer.allocate((int) channel.size());
+            while (buf.hasRemaining() && channel.read(buf) != -1) {
+                // one bulk read, repeated only if the channel returns less
+            }
+            buf.flip();
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Could not read " + fileName + " (Snapshot -> load)", e);
+            return null;
+        }
+        try {
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+                return null;
+            }
+            long[] stamps = new long[buf.getInt()];
+            for (int i = 0; i < stamps.length; i++) {
+                stamps[i] = buf.getLong();
+            }
+            if (!Arrays.equals(stamps, stamps(sources()))) {
+                logger.log(Level.FINE, fileName + " is older than the csv files (Snapshot -> load)");
+                return null;
+            }
+            long checksum = buf.getLong();
+            int length = buf.getInt();
+            if (length != buf.remaining()) {
+                return null;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buf.duplicate());
+            if (crc.getValue() != checksum) {
+                logger.log(Level.WARNING, fileName + " is corrupt, reading the csv files instead (Snapshot -> load)");
+                return null;
+            }
+            return decode(stamps, buf);
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Could not decode " + fileName + " (Snapshot -> load)", e);
+            return null;
+        }
+    }
+
+    /**
+     * rebuilds the Course, Lesson and Student objects from the payload
+     * @param stamps stamps of the source files
+     * @param buf payload of the snapshot
+     * @return the snapshot
+     */
+    private static Snapshot decode(long[] stamps, ByteBuffer buf) {
+        String[] strings = new String[buf.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[buf.getInt()];
+            buf.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        int courseCount = buf.getInt();
+        List<Course> courses = new ArrayList<Course>(courseCount);
+        for (int i = 0; i < courseCount; i++) {
+            String courseID = strings[buf.getInt()];
+            String school = strings[buf.getInt()];
+            int courseIndex = buf.getInt();
+            int vacancy = buf.getInt();
+            int courseSize = buf.getInt();
+            String courseType = strings[buf.getInt()];
+            int au = buf.getInt();
+            Lesson[] lessons = new Lesson[buf.getInt()];
+            for (int j = 0; j < lessons.length; j++) {
+                String lessonType = strings[buf.getInt()];
+                String venue = strings[buf.getInt()];
+                int packed = buf.getInt();
+                lessons[j] = new Lesson(lessonType, venue, DayOfWeek.of(packed >>> 22),
+                        LocalTime.ofSecondOfDay(((packed >>> 11) & 0x7FF) * 60L), LocalTime.ofSecondOfDay((packed & 0x7FF) * 60L));
+            }
+            courses.add(new Course(courseID, school, courseIndex, vacancy, courseSize, lessons, courseType, au));
+        }
+
+        int studentCount = buf.getInt();
+        List<Student> students = new ArrayList<Student>(studentCount);
+        for (int i = 0; i < studentCount; i++) {
+            String[] fields = new String[7];
+            for (int j = 0; j < fields.length; j++) {
+                fields[j] = strings[buf.getInt()];
+            }
+            int au = buf.getInt();
+            Course[] taken = new Course[buf.getInt()];
+            for (int j = 0; j < taken.length; j++) {
+                taken[j] = courses.get(buf.getInt());
+            }
+            students.add(new Student(fields[0], fields[1], fields[2], fields[3], fields[4], fields[5], fields[6], taken, au));
+        }
+        return new Snapshot(stamps, courses, students);
+    }
+
+    /**
+     * @param s string to store
+     * @param strings position of every string already in the string table
+     * @param stringTable strings in the order they are written
+     * @return position of s in the string table
+     */
+    private static int ref(String s, Map<String, Integer> strings, List<String> stringTable) {
+        Integer position = strings.get(s);
+        if (position == null) {
+            position = stringTable.size();
+            strings.put(s, position);
+            stringTable.add(s);
+        }
+        return position;
+    }
+
+    /**
+     * packs a lesson time into one int: day (3 bits), start minute of the day (11 bits), end minute of the day (11 bits)
+     * @param day DayOfWeek value, 1=Monday
+     * @param start what time the lesson starts, in whole minutes
+     * @param end what time the lesson ends, in whole minutes
+     * @return the packed lesson time
+     */
+    private static int packLesson(int day, LocalTime start, LocalTime end) {
+        if (day < 1 || day > 7 || start.getSecond() != 0 || end.getSecond() != 0) {
+            throw new IllegalStateException("lesson time cannot be packed: " + day + " " + start + " " + end);
+        }
+        return day << 22 | (start.toSecondOfDay() / 60) << 11 | end.toSecondOfDay() / 60;
+    }
+}
@@ -0,0 +1,196 @@
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+* <h1>StorageEngine</h1>
+* Storage of one table, the operations DatabaseManager and its subclasses need from it.
+* <p>
+* Rows are String[] with the cells in the order of the csv columns, the header is row 0.
+* Every row handed out is a copy, and every edit gets a copy, so callers can change and return it directly.
+* There are two engines:
+* CsvTable keeps the csv file in memory and writes it back in the background (the default), and
+* JdbcStorageEngine keeps the table in an embedded single-file database (eg. H2 or SQLite in file mode)
+* with real indexes on the key columns and a transaction per change.
+* <p>
+* the embedded database is used when the system property stars.storage.url is set to its JDBC url
+* e.g. -Dstars.storage.url=jdbc:h2:./STARS or -Dstars.storage.url=jdbc:sqlite:STARS.db
+* @version 1.0
+* @since   2020-25-11
+*/
+public interface StorageEngine {
+    /**
+    * JDBC url of the embedded database, null to keep the tables in their csv files
+    */
+    String STORAGE_URL = System.getProperty("stars.storage.url");
+
+    /**
+     * gets the storage of a table, the engine is chosen by stars.storage.url
+     * falls back to the csv file if the embedded database cannot be opened
+     * @param fileName file path of the csv of the table eg. STUDENT.csv
+     * @return StorageEngine of the table
+     */
+    static StorageEngine of(String fileName) {
+        if (isEmbedded()) {
+            StorageEngine engine = JdbcStorageEngine.of(STORAGE_URL, fileName);
+            if (engine != null) {
+                return engine;
+            }
+        }
+        return CsvTable.of(fileName);
+    }
+
+    /**
+     * @return true if the tables are kept in the embedded database instead of their csv files
+     */
+    static boolean isEmbedded() {
+        return STORAGE_URL != null && !STORAGE_URL.isEmpty();
+    }
+
+    /**
+     * @return String file path of the csv of this table
+     */
+    String getFILE();
+
+    /**
+     * adds an index over the key columns, lookups and updates by that key no longer scan the table
+     * @param cols key columns eg. 2 for Username or 0, 2 for CourseID+Index
+     */
+    void createIndex(int... cols);
+
+    /**
+     * gets a copy of the first row whose column col equals lookingFor
+     * @param col column number to look for unique identifier eg. Username
+     * @param lookingFor item to look for eg. "Hermione"
+     * @return String[] copy of the row, null if not found
+     */
+    String[] find(int col, String lookingFor);
+
+    /**
+     * gets a copy of the row with a key
+     * @param cols key columns eg. {0, 2} for CourseID+Index
+     * @param key values of the key columns joined by commas eg. "RA1001,1201"
+     * @return String[] copy of the row, null if not found
+     */
+    String[] find(int[] cols, String key);
+
+    /**
+     * scans the table for the first row that matches
+     * @param match condition the row has to fulfill
+     * @return String[] copy of the row, null if not found
+     */
+    String[] find(Predicate<String[]> match);
+
+    /**
+     * scans the whole table
+     * @return copy of all rows including the header
+     */
+    List<String[]> rows();
+
+    /**
+     * replaces the row whose column col equals key with the result of edit
+     * @param col column number of the key eg. Matriculation Number
+     * @param key key of the row eg. "U2000001C"
+     * @param edit gets a copy of the row and returns the new row
+     * @return number of rows changed
+     */
+    int update(int col, String key, UnaryOperator<String[]> edit);
+
+    /**
+     * replaces the row with a key with the result of edit
+     * @param cols key columns eg. {0, 2} for CourseID+Index
+     * @param key values of the key columns joined by commas eg. "RA1001,1201"
+     * @param edit gets a copy of the row and returns the new row
+     * @return number of rows changed
+     */
+    int update(int[] cols, String key, UnaryOperator<String[]> edit);
+
+    /**
+     * scans the table and replaces every row that matches with the result of edit
+     * @param match condition the row has to fulfill
+     * @param edit gets a copy of the row and returns the new row
+     * @return number of rows changed
+     */
+    int update(Predicate<String[]> match, UnaryOperator<String[]> edit);
+
+    /**
+     * adds a row at the end of the table
+     * @param row row to add
+     */
+    void append(String[] row);
+
+    /**
+     * starts a transaction on this table
+     * @return Transaction that collects row edits until commit() is called
+     */
+    Transaction begin();
+
+    /**
+     * makes every change so far durable
+     * @exception IOException if the table could not be written
+     */
+    void flush() throws IOException;
+
+    /**
+     * writes values into consecutive columns of the row whose column col equals key
+     * @param col column number of the key eg. Course Of Study
+     * @param key key of the row eg. "DSAI"
+     * @param first first column to write eg. the Start date of the access period
+     * @param values values to write
+     * @return number of rows changed
+     */
+    default int updateColumns(int col, String key, int first, String... values) {
+        return update(col, key, tokens -> {
+            tokens = DatabaseManager.padRow(tokens, first + values.length);
+            System.arraycopy(values, 0, tokens, first, values.length);
+            return tokens;
+        });
+    }
+
+    /**
+     * writes an enrollment pair into the first empty course slot of the row whose column col equals key
+     * @param col column number of the key eg. Matriculation Number
+     * @param key key of the row eg. "U2000001C"
+     * @param values the pair eg. {"CZ2002", "10002"}
+     * @return number of rows changed
+     */
+    default int addPair(int col, String key, String... values) {
+        return update(col, key, tokens -> DatabaseManager.addToSlot(tokens, values));
+    }
+
+    /**
+     * removes the enrollment pair that starts with value from the row whose column col equals key
+     * the remaining pairs are moved forward so there are no gaps
+     * @param col column number of the key eg. Matriculation Number
+     * @param key key of the row eg. "U2000001C"
+     * @param value first value of the pair eg. "CZ2002"
+     * @return number of rows changed
+     */
+    default int removePair(int col, String key, String value) {
+        return update(col, key, tokens -> DatabaseManager.removeFromSlot(tokens, value));
+    }
+
+    /**
+    * <h1>Transaction</h1>
+    * batch of row edits across several keys that is applied all-or-nothing
+    * e.g. both rows of an index swap
+    */
+    interface Transaction {
+        /**
+         * adds an edit to the transaction, every row whose column col equals key will be edited
+         * the edit can throw a RuntimeException to roll back the whole transaction
+         * @param col column number of the key eg. Matriculation Number
+         * @param key key of the row eg. "U2000001C"
+         * @param edit gets a copy of the row and returns the new row
+         * @return this Transaction so edits can be chained
+         */
+        Transaction edit(int col, String key, UnaryOperator<String[]> edit);
+
+        /**
+         * applies all edits of this transaction
+         * @return true if every edit was applied, false if nothing was changed
+         */
+        boolean commit();
+    }
+}
@@ -0,0 +1,108 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+* <h1>StringPool</h1>
+* Canonical copies of the values that repeat across thousands of rows, eg. School, Type, Nationality,
+* Course of Study, the access period, course IDs and indexes, venues and lesson types.
+* <p>
+* canon(s) returns one shared String for every equal value, so a loaded semester keeps each of them once instead
+* of once per row, course or lesson. CsvTable pools the columns named in COLUMNS of every row it holds,
+* the entities (Course, Student, Lesson) pool their low-cardinality fields, which covers the rows of the
+* Snapshot and of the JdbcStorageEngine as well.
+* <p>
+* The pool is bounded by MAX_SIZE, once it is full new values are returned as they are, so a column that turns
+* out not to repeat can not grow it without limit.
+* the size can be changed with the system property stars.pool.size, 0 turns the pool off
+* e.g. this.school = StringPool.canon(school);
+* @version 1.0
+* @since   2020-25-11
+*/
+public class StringPool {
+    /**
+    * maximum number of distinct values kept
+    */
+    static final int MAX_SIZE = Integer.getInteger("stars.pool.size", 8192);
+    /**
+    * header names of the table columns whose values are pooled
+    */
+    static final Set<String> COLUMNS = new HashSet<String>(Arrays.asList(
+            "CourseID", "School", "Index", "Session 1", "Session 2", "Session 3", "Type", "AU",
+            "Gender", "Nationality", "Course of Study", "Start date", "Start time", "End date", "End time", "Total AU"));
+    static {
+        for (int i = 1; i <= 7; i++) {
+            COLUMNS.add("Course " + i);
+            COLUMNS.add("Index " + i);
+        }
+    }
+
+    /**
+    * canonical copy of every value, by value
+    */
+    private static final ConcurrentHashMap<String, String> pool = new ConcurrentHashMap<String, String>();
+
+    /**
+     * gets the canonical copy of a value
+     * @param s value eg. "SPMS"
+     * @return the shared String equal to s, s itself if it is the first or the pool is full
+     */
+    public static String canon(String s) {
+        if (s == null || s.isEmpty() || MAX_SIZE <= 0) {
+            return s;
+        }
+        String shared = pool.get(s);
+        if (shared != null) {
+            return shared;
+        }
+        if (pool.size() >= MAX_SIZE) {
+            return s;
+        }
+        shared = pool.putIfAbsent(s, s);
+        return shared == null ? s : shared;
+    }
+
+    /**
+     * finds the pooled columns of a table
+     * @param header first row of the table
+     * @return positions of the columns named in COLUMNS
+     */
+    static int[] columns(String[] header) {
+        List<Integer> cols = new ArrayList<Integer>();
+        for (int i = 0; i < header.length; i++) {
+            if (COLUMNS.contains(header[i])) {
+                cols.add(i);
+            }
+        }
+        int[] positions = new int[cols.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = cols.get(i);
+        }
+        return positions;
+    }
+
+    /**
+     * replaces the values of the pooled columns of a row by their canonical copies, in place
+     * @param row row of a table
+     * @param cols pooled columns, from columns(header)
+     * @return the row
+     */
+    static String[] canon(String[] row, int[] cols) {
+        for (int col : cols) {
+            if (col < row.length) {
+                row[col] = canon(row[col]);
+            }
+        }
+        return row;
+    }
+
+    /**
+     * @return number of distinct values in the pool
+     */
+    public static int size() {
+        return pool.size();
+    }
+}
@@ -0,0 +1,85 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+* <h1>StripedLock</h1>
+* Fixed set of locks shared by many rows, a row always maps to the same lock (its stripe).
+* <p>
+* Changes to rows on different stripes run in parallel, changes to the same row always take the same lock and
+* are serialized. Memory stays constant however many rows there are, at the price of two unrelated rows
+* sometimes sharing a stripe. Several stripes are always locked in ascending order, so two threads
+* locking overlapping rows cannot deadlock.
+* e.g. List&lt;ReentrantLock&gt; held = rowLocks.lockAll(rowNumbers); try { ... } finally { StripedLock.unlockAll(held); }
+* @version 1.0
+* @since   2020-25-11
+*/
+public class StripedLock {
+    /**
+    * the locks, a row id maps to stripes[id mod stripes.length]
+    */
+    private final ReentrantLock[] stripes;
+
+    /**
+     * @param stripes number of locks
+     */
+    public StripedLock(int stripes) {
+        this.stripes = new ReentrantLock[Math.max(stripes, 1)];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * @param id row id eg. row number
+     * @return number of the stripe of the row
+     */
+    private int stripeOf(int id) {
+        return Math.floorMod(id, stripes.length);
+    }
+
+    /**
+     * locks the stripe of one row
+     * @param id row id eg. row number
+     * @return the lock that is now held
+     */
+    public ReentrantLock lock(int id) {
+        ReentrantLock stripe = stripes[stripeOf(id)];
+        stripe.lock();
+        return stripe;
+    }
+
+    /**
+     * locks the stripes of every row, in ascending order of stripe
+     * @param ids row ids eg. row numbers
+     * @return the locks that are now held, to be passed to unlockAll
+     */
+    public List<ReentrantLock> lockAll(Collection<Integer> ids) {
+        if (ids.size() == 1) {
+            return Collections.singletonList(lock(ids.iterator().next()));
+        }
+        TreeSet<Integer> toLock = new TreeSet<Integer>();
+        for (int id : ids) {
+            toLock.add(stripeOf(id));
+        }
+        List<ReentrantLock> held = new ArrayList<ReentrantLock>(toLock.size());
+        for (int stripe : toLock) {
+            stripes[stripe].lock();
+            held.add(stripes[stripe]);
+        }
+        return held;
+    }
+
+    /**
+     * unlocks the locks returned by lockAll
+     * @param held locks that are held
+     */
+    public static void unlockAll(List<ReentrantLock> held) {
+        for (int i = held.size() - 1; i >= 0; i--) {
+            held.get(i).unlock();
+        }
+    }
+}
@@ -51,11 +51,17 @@ public class Student implements IUser {
 	/**
 	 * {@inheritDoc}
 	 * Creates new instance of StudentApp and displays the student menu
+	 * this Student is pinned in the StudentRepository until the student logs out, so it is not evicted meanwhile
 	 */
 	@Override
 	public void run() {
-		StudentApp studentUI = new StudentApp(this);
-		studentUI.display();
+		StudentRepository.pin(this);
+		try {
+			StudentApp studentUI = new StudentApp(this);
+			studentUI.display();
+		} finally {
+			StudentRepository.release(this);
+		}
 	}
 
 	/**
@@ -75,9 +81,9 @@ public class Student implements IUser {
 		this.lastName = lastName;
 		this.matricNo = matricNo;
 		this.userName = userName;
-		this.gender = gender;
-		this.nationality = nationality;
-		this.courseOfStudy = courseOfStudy;
+		this.gender = StringPool.canon(gender);
+		this.nationality = StringPool.canon(nationality);
+		this.courseOfStudy = StringPool.canon(courseOfStudy);
 		this.setEmail(userName + "@e.ntu.edu.sg");
 		methodToSendMessage("both");
 	}
@@ -98,34 +104,96 @@ public class Student implements IUser {
 	 */
 	public Student(String lastName, String firstName, String userName, String gender, String nationality,
 			String courseOfStudy, String matricNo, List<String> coursesRegistered, int AU) {
+		this(lastName, firstName, userName, gender, nationality, courseOfStudy, matricNo,
+				alreadyRegistered(coursesRegistered), AU);
+	}
+
+	/**
+	 * This constructor creates new Student whose courses are already looked up
+	 * registers Student into the courses and creates timetable for Student from them
+	 * @param lastName This Student's last name
+	 * @param firstName This Student's first name
+	 * @param userName This Student's username
+	 * @param gender This Student's gender (F/M)
+	 * @param nationality This Student's nationality
+	 * @param courseOfStudy Course Student is enrolled in (eg. DSAI)
+	 * @param matricNo This Student's matriculation number
+	 * @param coursesRegistered Course objects Student is already enrolled in
+	 * @param AU Total AU of courses taken by Student
+	 */
+	public Student(String lastName, String firstName, String userName, String gender, String nationality,
+			String courseOfStudy, String matricNo, Course[] coursesRegistered, int AU) {
+		this(lastName, firstName, userName, gender, nationality, courseOfStudy, matricNo, coursesRegistered, AU, true);
+	}
+
+	/**
+	 * Creates new Student whose courses are already looked up, without adding it to the registered students of the courses
+	 * used by StudentLoader, which builds many students at once and registers them afterwards
+	 * @param lastName This Student's last name
+	 * @param firstName This Student's first name
+	 * @param userName This Student's username
+	 * @param gender This Student's gender (F/M)
+	 * @param nationality This Student's nationality
+	 * @param courseOfStudy Course Student is enrolled in (eg. DSAI)
+	 * @param matricNo This Student's matriculation number
+	 * @param coursesRegistered Course objects Student is already enrolled in
+	 * @param AU Total AU of courses taken by Student
+	 * @return Student that is not yet in Course.registeredStudents
+	 */
+	static Student unregistered(String lastName, String firstName, String userName, String gender, String nationality,
+			String courseOfStudy, String matricNo, Course[] coursesRegistered, int AU) {
+		return new Student(lastName, firstName, userName, gender, nationality, courseOfStudy, matricNo, coursesRegistered, AU, false);
+	}
+
+	/**
+	 * @param lastName This Student's last name
+	 * @param firstName This Student's first name
+	 * @param userName This Student's username
+	 * @param gender This Student's gender (F/M)
+	 * @param nationality This Student's nationality
+	 * @param courseOfStudy Course Student is enrolled in (eg. DSAI)
+	 * @param matricNo This Student's matriculation number
+	 * @param coursesRegistered Course objects Student is already enrolled in
+	 * @param AU Total AU of courses taken by Student
+	 * @param register true to add the Student to the registered students of the courses
+	 */
+	private Student(String lastName, String firstName, String userName, String gender, String nationality,
+			String courseOfStudy, String matricNo, Course[] coursesRegistered, int AU, boolean register) {
 		
 		this.firstName = firstName;
 		this.lastName = lastName;
 		this.matricNo = matricNo;
 		this.userName = userName;
-		this.gender = gender;
-		this.nationality = nationality;
-		this.courseOfStudy = courseOfStudy;
+		this.gender = StringPool.canon(gender);
+		this.nationality = StringPool.canon(nationality);
+		this.courseOfStudy = StringPool.canon(courseOfStudy);
 		this.totalAU = AU;
 		this.setEmail(userName + "@e.ntu.edu.sg");
-		alreadyRegistered(coursesRegistered);
+		for (Course temp : coursesRegistered) {
+			coursesTaken.add(temp);
+			if (register) {
+				temp.addStudent(this);
+			}
+		}
 		this.studentTimeTable = new StudentTimeTable(coursesTaken);
 		methodToSendMessage("both");
 	}
 
 	/**
-	 * Registers Students into each Course in array list of registered courses from CSV
+	 * Looks up each Course in array list of registered courses from CSV
 	 * @param coursesRegistered List of String of courses the student is registered to
+	 * @return Course objects the student is registered to
 	 */
-	private void alreadyRegistered(List<String> coursesRegistered) {
-		if (coursesRegistered != null) {
-			for (int i = 0; i < coursesRegistered.size(); i += 2) {
-				Course temp = StudentManager.getCourse(coursesRegistered.get(i),
-						Integer.parseInt(coursesRegistered.get(i + 1)));
-				coursesTaken.add(temp);
-				temp.addStudent(this);
-			}
+	private static Course[] alreadyRegistered(List<String> coursesRegistered) {
+		if (coursesRegistered == null) {
+			return new Course[0];
 		}
+		Course[] courses = new Course[coursesRegistered.size() / 2];
+		for (int i = 0; i + 1 < coursesRegistered.size(); i += 2) {
+			courses[i / 2] = StudentManager.getCourse(coursesRegistered.get(i),
+					Integer.parseInt(coursesRegistered.get(i + 1)));
+		}
+		return courses;
 	}
 
 	/**
@@ -180,24 +248,25 @@ public class Student implements IUser {
 
 	/**
 	 * Confirm registration of Course
+	 * the course is added to csv first, only if it is saved
 	 * Student is removed from waitlist and added to course
 	 * Message is sent to student to notify confirmation of registration
 	 * @param c Course that the Student is registering to
+	 * @return true if the registration was saved, otherwise this Student is left as it was
 	 */
-	public void confirmRegistration(Course c){
+	public boolean confirmRegistration(Course c){
+		/**
+		 * add to csv with the new AU
+		 */
+		if(!StudentManager.addCourse(this, c, getTotalAU()+c.getAU())){
+			return false;
+		}
 		studentTimeTable.addCourse(c);
 		coursesWaitlisted.remove(c);
 		setTotalAU(getTotalAU()+c.getAU());
-		/**
-		 * update new AU
-		 */
 		sent.sendMessageTo(this, "congratulations you have been accepted to " + c.getCourseID() + ", " + c.getCourseIndex(), "reg");
-		StudentManager.addCourse(this, c);
-		/**
-		 * add to csv
-		 */
 		System.out.println("confirmed registration!");
-
+		return true;
 	}
 
 	/**
@@ -284,16 +353,20 @@ public class Student implements IUser {
 
 	/**
 	 * Unregister Student from course if Course is taken by Student
+	 * the drop is saved to csv first, this Student and the Course are only changed if it is saved
 	 * Removes Student from waitlist of Course if Student is on waitlist
 	 * Display error message if Student is neither registered nor waitlisted
 	 * @param c Course the student wants to drop
 	 */
   public void dropCourse(Course c) {
-		if(coursesTaken.remove(c)){
+		if(coursesTaken.contains(c)){
+			if(!StudentManager.dropCourse(this, c, totalAU - c.getAU())){
+				return;
+			}
+			coursesTaken.remove(c);
 			System.out.println(c.getCourseID() + " removed from registered!");
 			c.unregisterStudent(this);
 			setTotalAU(totalAU - c.getAU()); //update total au
-			StudentManager.dropCourse(this, c);
 			studentTimeTable.dropCourse(c);
 			sent.sendMessageTo(this, "You have been successfully deregistered from " + c.getCourseID() + ", " + c.getCourseIndex(), "reg");
 			return;
@@ -536,7 +609,7 @@ public class Student implements IUser {
 	 * @param nationality nationality of the student
 	 */
 	public void setNationality(String nationality) {
-		this.nationality = nationality;
+		this.nationality = StringPool.canon(nationality);
 	}
 
 	/**
@@ -552,7 +625,7 @@ public class Student implements IUser {
 	 * @param courseOfStudy the course of study to be set
 	 */
 	public void setCourseOfStudy(String courseOfStudy) {
-		this.courseOfStudy = courseOfStudy;
+		this.courseOfStudy = StringPool.canon(courseOfStudy);
 	}
 
 	/**
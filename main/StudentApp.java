@@ -219,7 +219,7 @@ public class StudentApp implements IMainInterface{
 						break;
 					}
 					/**
-					 * peer enters password in console
+					 * peer enters password in console, the login is only valid for this swap
 					 */
 					cnsl = System.console();
 					if (cnsl != null) {
@@ -230,15 +230,17 @@ public class StudentApp implements IMainInterface{
 						// prints
 						
 					}
-					Student peer = sm.swapCourseIndex(s, peerMatricNum, peerCourseIndex, myCourseIndex, courseID, peerPassword);
+					String peerToken = sm.loginPeer(s, peerMatricNum, peerPassword, myCourseIndex, peerCourseIndex);
+					Student peer = sm.swapCourseIndex(s, peerMatricNum, peerCourseIndex, myCourseIndex, courseID, peerToken);
 					if(peer !=null){
 						System.out.println("Confirm swap? (yes/no only)");
 						response = sc.next().trim().toLowerCase();
 						if(response.equals("yes")){
-							sm.confirmSwap(s, peer,myCourseIndex,  peerCourseIndex);
+							sm.confirmSwap(s, peer,myCourseIndex,  peerCourseIndex, peerToken);
 							s.printCoursesTaken();
 						}
 					}
+					sm.cancelSwap(peerToken);
 					break;
 				case 7:
 					/**
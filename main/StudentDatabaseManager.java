@@ -1,14 +1,10 @@
 
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.List;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-
-import java.io.*;
 
 /**
  * <h1>
@@ -24,9 +20,18 @@ import java.io.*;
  */
 public class StudentDatabaseManager extends DatabaseManager {
     /**
-     * file path to student CSV
+     * file path to the student CSV
+     */
+    final static String CSVFILE = "STUDENT.csv";
+    /**
+     * true to keep students in the fixed-width format, set with the system property stars.student.fixedwidth
+     * course slot and AU changes are then written in place instead of rewriting the whole file
+     */
+    final static boolean FIXED_WIDTH = Boolean.getBoolean("stars.student.fixedwidth");
+    /**
+     * file path to the student table, STUDENT.csv or STUDENT.fixed
      */
-    final static String STUDENTFILE = "STUDENT.csv";
+    final static String STUDENTFILE = FIXED_WIDTH ? "STUDENT" + FixedWidthFormat.SUFFIX : CSVFILE;
     /**
      * columns in student CSV
      */
@@ -35,14 +40,6 @@ public class StudentDatabaseManager extends DatabaseManager {
             "Index 1", "Course 2", "Index 2", "Course 3", "Index 3", "Course 4", "Index 4", "Course 5", "Index 5",
             "Course 6", "Index 6", "Course 7", "Index 7", "Total AU" };
     private static List<String> col = Arrays.asList(columns);
-    /**
-     * List of Student objects
-     */
-    public static List<Student> studentList = new ArrayList<Student>();
-    /**
-     * initialize variable AU
-     */
-    private static int AU = 0 ;
     /**
      * default access period of students to be used
      */
@@ -51,13 +48,39 @@ public class StudentDatabaseManager extends DatabaseManager {
      * instance of Student Database Manager
      */
     private static StudentDatabaseManager sdm = null;
+    /**
+     * file path to the journal of enrollment changes that are not yet folded into the student CSV
+     */
+    final static String JOURNALFILE = "STUDENT.journal";
+    /**
+     * journal of enrollment changes, opened (and replayed) once
+     */
+    private static EnrollmentJournal journal = null;
+
+    static {
+        /**
+         * the first time the fixed-width format is used, the student CSV is converted
+         * this runs before anything reads STUDENTFILE, as STUDENTFILE is not a compile-time constant
+         */
+        if (FIXED_WIDTH && !new File(STUDENTFILE).exists()) {
+            try {
+                FixedWidthConverter.toFixedWidth(CSVFILE, STUDENTFILE);
+            } catch (IOException e) {
+                System.out.println("Error converting " + CSVFILE + " to " + STUDENTFILE + "(StudentDatabaseManager)");
+                e.printStackTrace();
+            }
+        }
+    }
 
     /**
-     * gets list of students from CSV and stores in studentList
+     * opens the student table and replays the enrollment journal
+     * Student objects are built on demand by StudentRepository
      */
     public StudentDatabaseManager() {
         super(STUDENTFILE, col);
-        studentList = getAllStudentsFromCSV();
+        getTable().createIndex(col.indexOf("Username"));
+        getTable().createIndex(col.indexOf("Matriculation Number"));
+        journal();
         if (sdm == null){
             sdm = this;
         }
@@ -76,117 +99,114 @@ public class StudentDatabaseManager extends DatabaseManager {
         }
     }
 
+    /**
+     * gets the enrollment journal, replaying it on top of the student CSV the first time
+     * @return enrollment journal of the student CSV
+     */
+    private static synchronized EnrollmentJournal journal(){
+        if (journal == null){
+            journal = new EnrollmentJournal(StorageEngine.of(STUDENTFILE), JOURNALFILE);
+        }
+        return journal;
+    }
+
+    /**
+     * folds every enrollment change in the journal into the student CSV, used on clean shutdown
+     */
+    public static synchronized void compactJournal(){
+        if (journal != null){
+            try {
+                journal.compact();
+            } catch (IOException e) {
+                System.out.println("Error compacting " + JOURNALFILE + "(StudentDatabaseManager)");
+                e.printStackTrace();
+            }
+        }
+    }
+
     /**
      * updates the access datetime of all students in a specific course of study
-     * changes made to CSV
+     * written as one record in the enrollment journal, which is folded into the csv in the background
+     * publishes an AccessPeriodChanged event if any student changed
      * @param course Course to be changed
      * @param newStartDate new Start date (should be in the form: November 20 2020)
      * @param newStartTime new Start time (should be in the form: 09:30)
      * @param newEndDate new End date (should be in the form: November 20 2020)
      * @param newEndTime new Start time (should be in the form: 09:30)
+     * @return true if a student was changed and the change is saved
      */
-    public void changeStudentAccess(String course, String newStartDate, String newStartTime, String newEndDate,
+    public boolean changeStudentAccess(String course, String newStartDate, String newStartTime, String newEndDate,
             String newEndTime) {
-                List<String> list = Arrays.asList(newStartDate, newStartTime, newEndDate, newEndTime);
-        String replace = String.join(",", list)+",";
-
-        super.updateRow(replace, course, col.indexOf("Course Of Study"));
-    }
-
-    /**
-     * when admin updates course index, replace course index in student csv
-     * @param courseID Course ID to be updated (eg. CZ2002)
-     * @param oldIndex old index to update (eg. 10002)
-     * @param newIndex new index (eg. 20002)
-     */
-    public void updateCourseStudent(String courseID, int oldIndex, int newIndex){
-        replaceInformationCSV(courseID, Integer.toString(oldIndex), courseID, Integer.toString(newIndex));
+        String[] values = { newStartDate, newStartTime, newEndDate, newEndTime };
+        if (journal().access(course, values)) {
+            ChangeFeed.publish(new ChangeEvent.AccessPeriodChanged(course, values));
+            return true;
+        }
+        return false;
     }
 
     /**
-     * when admin updates course index, update AU (minus old, plus new)
-     * @param courseID course ID (eg. CZ2002)
-     * @param courseIndex course index to update (eg. 10002)
-     * @param oldAU old AU int
-     * @param newAU new AU int
+     * when admin updates a course index or its AU, carries the change over to every student who takes it
+     * the student table is scanned once: every row with a slot of the course at the old index gets the new index
+     * and its Total AU changed (minus old, plus new), written to the enrollment journal as one ADD record per student.
+     * The Student objects in Course.registeredStudents share the Course, so only their Total AU is changed;
+     * students that are not built yet read the changed row when they are built.
+     * called before the Course is changed, so the Course is only changed once its students are saved
+     * publishes an EnrollmentDropped and an EnrollmentAdded event for every student if the index changed
+     * @param c Course that is updated, still with its old index and AU
+     * @param newIndex course index after the update (eg. 10002)
+     * @param newAU AU of the course after the update
+     * @return number of students changed, -1 if the change could not be saved and nothing was changed
      */
-    public void updateCourseAU(String courseID, int courseIndex, int oldAU, int newAU){
-        FileWriter fw = null;
-        ArrayList<String[]> reWrite = new ArrayList<String[]>();
-        String line = "";
-        try(BufferedReader fileReader = new BufferedReader(new FileReader(STUDENTFILE))) {
-            while ((line = fileReader.readLine()) != null) {
-                String[] tokens = line.split(",", -1);
-                List<String> token = Arrays.asList(tokens);
-                if (token.contains(courseID) && token.contains(Integer.toString(courseIndex))) { // if row contains the strings you identify it with
-                    int oldTotalAU = Integer.parseInt(tokens[col.indexOf("Total AU")]);
-                    int newTotalAU = oldTotalAU - oldAU + newAU;
-                    tokens[col.indexOf("Total AU")] = Integer.toString(newTotalAU);
-                    reWrite.add(tokens);
-                } else reWrite.add(tokens);
-            }
-        } catch (IOException e) {
-            System.out.println("Could not find file "+ STUDENTFILE +" to read (StudentDatabaseManager -> updateCourseAU)");
+    public int updateCourseStudents(Course c, int newIndex, int newAU){
+        String courseID = c.getCourseID();
+        int oldIndex = c.getCourseIndex();
+        int oldAU = c.getAU();
+        List<String> changed = journal().reindex(courseID, oldIndex, newIndex, oldAU, newAU);
+        if (changed == null) {
+            System.out.println("Students of " + courseID + " could not be updated (StudentDatabaseManager)");
+            return -1;
         }
-        try {
-            fw = new FileWriter(STUDENTFILE);
-            for (String[] l : reWrite) {
-                String s = String.join(",",l);
-                try {
-                    fw.append(s+"\n");
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
+        if (oldAU != newAU) {
+            List<Student> registered;
+            synchronized (c) {
+                registered = new ArrayList<Student>(c.getRegisteredStudentsList());
             }
-        } catch (IOException e) {
-            System.out.println("Could not find file "+ STUDENTFILE +" StudentDatabaseManager -> updateCourseAU");
-        } 
-        finally{
-            try {
-                fw.flush();
-                fw.close();
-            } catch (IOException e) {
-                System.out.println("Could not close file "+ STUDENTFILE +" StudentDatabaseManager -> updateCourseAU");
+            for (Student s : registered) {
+                s.setTotalAU(s.getTotalAU() - oldAU + newAU);
+            }
+        }
+        if (oldIndex != newIndex) {
+            for (String matricNo : changed) {
+                ChangeFeed.publish(new ChangeEvent.EnrollmentDropped(matricNo, courseID, oldIndex));
+                ChangeFeed.publish(new ChangeEvent.EnrollmentAdded(matricNo, courseID, newIndex));
             }
         }
+        return changed.size();
     }
 
     /**
      * checking if student exists by finding matric number (matric number is unique)
+     * the result is kept in the RowCache until the student table changes
      * @param identifier1 unique identifier of student
      * @param identifier2 unique identifier of student
      * @return 1 if student is found in file and 0 otherwise
      */
     public int checkStudentExist(String identifier1, String identifier2){
-        try{
-            String line = "";
-            BufferedReader fileReader = null;
-            fileReader = new BufferedReader(new FileReader(STUDENTFILE));
-            while ((line = fileReader.readLine()) != null){
-                String[] tokens = line.split(",",-1);
-                List<String> token = Arrays.asList(tokens);
-                if(token.contains(identifier1) && token.contains(identifier2)){
-                    fileReader.close();
-                    return 1;
-                }
-            }
-            fileReader.close();
-        }
-        catch(Exception e){
-            e.printStackTrace();
-            System.out.println("Error checking student exist");
+        String[] row = RowCache.get(getFILE(), RowCache.ANY_COLUMN, identifier1 + "," + identifier2,
+                () -> getTable().find(tokens -> containsBoth(tokens, identifier1, identifier2)));
+        if(row != null){
+            return 1;
         }
         return 0; //student not found
     }
 
     /**
-     * @return studentList as list of Student objects
+     * builds every Student object, see StudentRepository.all
+     * @return list of every Student object
      */
     public static List<Student> getAllStudents(){
-        if(studentList.isEmpty()){
-            studentList = getAllStudentsFromCSV();
-        }
-        return studentList;
+        return StudentRepository.all();
     }
 
     /**
@@ -196,62 +216,26 @@ public class StudentDatabaseManager extends DatabaseManager {
      *          null if not found and print error message
      */
     public static Student retrieveStudent(String userName) {
-        // studentList = getAllStudentsFromCSV();
-        for (Student s : studentList) {
-            if(s.getUsername().equals(userName)){
-                return s;
-            }
-        }System.out.println("Student does not exist in the database(StudentDatabaseManager)");
-        return null;
-
-    }
-
-    /**
-     * get list of all Students in CSV
-     * @return studentList as list of Student objects
-     */
-    private static List<Student> getAllStudentsFromCSV() {
-        studentList = readStudentsFromCSV(STUDENTFILE);
-        return studentList;
-    }
+        Student s = StudentRepository.byUsername(userName);
+        if(s == null){
+            System.out.println("Student does not exist in the database(StudentDatabaseManager)");
+        }
+        return s;
 
-    /**
-     * creates and returns list of all students from the CSV
-     * @param fileName student CSV
-     * @return studentList as list of Student objects
-     * @exception IOException
-     */
-     private static List<Student> readStudentsFromCSV(String fileName){ 
-        studentList = new ArrayList<Student>(); 
-        Path pathToFile = Paths.get(fileName); 
-        try(BufferedReader br = Files.newBufferedReader(pathToFile, StandardCharsets.US_ASCII)){
-            String line = br.readLine(); // loop until all lines are read 
-            line = br.readLine();
-            while (line != null) { 
-                
-                String[] attributes = line.split(",",-1); 
-                Student s = createStudent(attributes);  
-                if(s != null){
-                    studentList.add(s);
-                }
-                line = br.readLine(); 
-            } 
-        } 
-        catch (IOException ioe) { 
-            ioe.printStackTrace(); 
-        } 
-        return studentList; 
     }
 
     /**
-     * creates Student object from string array of data
+     * creates Student object from string array of data, without adding it to the registered students of its courses
+     * safe to call from several threads, the courses are only read
      * @param metadata string array of data
+     * @param courses Course objects by CourseID and index
      * @return Student object
      *          null if unsuccessful
      */
-    private static Student createStudent(String[] metadata) {
+    static Student createStudent(String[] metadata, CourseIndexMap courses) {
         
         List<String> coursesRegistered = new ArrayList<String>();
+        int AU = 0;
         if(metadata.length>1){
             String lastName = metadata[0]; 
             String firstName= metadata[1];
@@ -279,7 +263,17 @@ public class StudentDatabaseManager extends DatabaseManager {
                 }
             }
             
-            return new Student(lastName, firstName, userName, gender, nationality,courseOfStudy, matricNo, coursesRegistered, AU); 
+            List<Course> registered = new ArrayList<Course>(coursesRegistered.size() / 2);
+            for (int i = 0; i + 1 < coursesRegistered.size(); i += 2) {
+                Course c = courses.get(coursesRegistered.get(i), Integer.parseInt(coursesRegistered.get(i + 1)));
+                if (c == null) {
+                    System.out.println("course does not exist!");
+                } else {
+                    registered.add(c);
+                }
+            }
+            return Student.unregistered(lastName, firstName, userName, gender, nationality, courseOfStudy, matricNo,
+                                            registered.toArray(new Course[0]), AU); 
             
         }return null;
     }
@@ -287,52 +281,72 @@ public class StudentDatabaseManager extends DatabaseManager {
 
     /**
      * updates CSV when two students swap indexes
+     * written as one record in the enrollment journal, both students are changed together or not at all
+     * publishes an EnrollmentDropped and an EnrollmentAdded event for each student
      * @param matricNo Student's matriculation number
      * @param peerMatricNo peer's matriculation number
      * @param myCourseIndex Student's course index
      * @param peerCourseIndex peer's course index
      * @param courseID course ID of course to be swapped
+     * @return true if the swap was saved, false if nothing was changed
      */
-    public void swapCourseIndex(String matricNo, String peerMatricNo, int myCourseIndex, int peerCourseIndex, String courseID) {
-        int uniqueColumn = col.indexOf("Matriculation Number");
-
-        swapValuesCSV(uniqueColumn, matricNo, peerMatricNo, 
-                    Integer.toString(myCourseIndex), Integer.toString(peerCourseIndex), courseID);
-     
+    public boolean swapCourseIndex(String matricNo, String peerMatricNo, int myCourseIndex, int peerCourseIndex, String courseID) {
+        boolean swapped = journal().swap(matricNo, peerMatricNo, courseID, peerCourseIndex, myCourseIndex);
+        if (swapped) {
+            ChangeFeed.publish(new ChangeEvent.EnrollmentDropped(matricNo, courseID, myCourseIndex));
+            ChangeFeed.publish(new ChangeEvent.EnrollmentAdded(matricNo, courseID, peerCourseIndex));
+            ChangeFeed.publish(new ChangeEvent.EnrollmentDropped(peerMatricNo, courseID, peerCourseIndex));
+            ChangeFeed.publish(new ChangeEvent.EnrollmentAdded(peerMatricNo, courseID, myCourseIndex));
+        }
+        return swapped;
     }
 
     /**
      * add a new course to student in csv - input student and
      * courseID and course index to add
+     * written as one record in the enrollment journal, which is folded into the csv in the background
+     * publishes an EnrollmentAdded event
      * @param s Student who is adding course
      * @param courseID course ID of course added
      * @param courseIndex course ID of course added
+     * @param totalAU Total AU of the student with the course
+     * @return true if the change is saved, false if it could not be written
      */
-    public void addCourse(Student s, String courseID, int courseIndex) {
+    public boolean addCourse(Student s, String courseID, int courseIndex, int totalAU) {
         if(sdm == null){
             sdm = new StudentDatabaseManager();
         }
-        List<String> list = Arrays.asList(courseID, Integer.toString(courseIndex));
-        String toAdd = String.join(",", list);
-        replaceInformationCSV(col.indexOf("Total AU"), s.getMatricNo(), s.getFirstName(), Integer.toString(s.getTotalAU()));
-        appendEntry(toAdd, col.indexOf("Matriculation Number"), s.getMatricNo());
+        if (journal().add(s.getMatricNo(), courseID, courseIndex, totalAU)) {
+            ChangeFeed.publish(new ChangeEvent.EnrollmentAdded(s.getMatricNo(), courseID, courseIndex));
+            return true;
+        }
+        return false;
     }
 
 
     /**
      * drops specific course in student CSV
      * changes updated AU
+     * written as one record in the enrollment journal, which is folded into the csv in the background
+     * publishes an EnrollmentDropped event with the index the row had
      * @param s Student who is dropping course
      * @param courseID course ID to be dropped
+     * @param totalAU Total AU of the student without the course
+     * @return true if the change is saved, false if it could not be written
      */
-    // working
-    public void dropCourse(Student s, String courseID) {
+    public boolean dropCourse(Student s, String courseID, int totalAU) {
         if(sdm == null){
             sdm = new StudentDatabaseManager();
         }
-        replaceInformationCSV(col.indexOf("Total AU"), s.getMatricNo(), s.getFirstName(), Integer.toString(s.getTotalAU()));
-        removeRow(col.indexOf("Matriculation Number"), s.getMatricNo(), courseID);
-        
+        String[] row = getTable().find(col.indexOf("Matriculation Number"), s.getMatricNo());
+        int slot = row == null ? -1 : findSlot(row, courseID);
+        if (!journal().drop(s.getMatricNo(), courseID, totalAU)) {
+            return false;
+        }
+        if (slot != -1) {
+            ChangeFeed.publish(new ChangeEvent.EnrollmentDropped(s.getMatricNo(), courseID, Integer.parseInt(row[slot + 1])));
+        }
+        return true;
     }
 
    
@@ -340,7 +354,8 @@ public class StudentDatabaseManager extends DatabaseManager {
 
     /**
      * adds new Student into CSV file when admin adds a new Student
-     * adds to login file
+     * written as one record in the enrollment journal, which is folded into the csv in the background
+     * adds to login file once the Student is saved
      * @param lastName last name of Student to be added
      * @param firstName first name of Student to be added
      * @param userName username of Student to be added
@@ -352,11 +367,14 @@ public class StudentDatabaseManager extends DatabaseManager {
     public void addStudent(String lastName, String firstName, String userName,
                                   String gender, String nationality, String courseOfStudy, String matricNo){
         
-        Login.addPassword(userName);
         List<String> list = Arrays.asList(lastName, firstName, userName, gender, nationality, courseOfStudy, matricNo, 
                                             defaultAccessPeriod);
         String replace = String.join(",", list);
-        addEntry(replace);
+        if (!journal().insert(padRow(new CsvTokenizer().reset(replace).toArray(), col.size() + 1))) {
+            System.out.println("Student: " + firstName + " " + lastName + " could not be saved, please try again.");
+            return;
+        }
+        Login.addPassword(userName);
         System.out.println("Student: " + firstName + " " + lastName + " of matriculation number " + matricNo +
                              " has been successfully added.");
         
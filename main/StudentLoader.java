@@ -0,0 +1,115 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+* <h1>StudentLoader</h1>
+* Builds the Student objects of the whole student table in parallel on the common ForkJoinPool.
+* <p>
+* The rows are split into chunks of CHUNK_ROWS. Each chunk is parsed and its students are constructed
+* (course lookup and StudentTimeTable) on its own worker, courses are found through the CourseIndexMap instead of a
+* linear scan per enrollment. The students are not yet added to Course.registeredStudents while this runs.
+* In the merge phase the enrollments of all chunks are grouped by course and every course gets its students
+* in one addStudents call, each course on one worker, so registeredStudents keeps the order of the file.
+* <p>
+* the chunk size can be changed with the system property stars.loader.chunk
+* @version 1.0
+* @since   2020-25-11
+*/
+public class StudentLoader {
+    /**
+    * number of rows one task parses without splitting further
+    */
+    static final int CHUNK_ROWS = Integer.getInteger("stars.loader.chunk", 256);
+
+    /**
+     * builds the students of the rows of the student table and registers them in their courses
+     * @param rows rows of the student table, row 0 is the header
+     * @param courses every Course object by course ID and index
+     * @return List of Student objects, in the order of the rows
+     */
+    public static List<Student> load(List<String[]> rows, CourseIndexMap courses) {
+        Part loaded = ForkJoinPool.commonPool().invoke(new LoadTask(rows, 1, rows.size(), courses)); // skip the header
+        loaded.enrollments.entrySet().parallelStream().forEach(e -> e.getKey().addStudents(e.getValue()));
+        return loaded.students;
+    }
+
+    /**
+    * students built from a range of rows, and their enrollments grouped by course
+    */
+    private static final class Part {
+        private final List<Student> students = new ArrayList<Student>();
+        private final Map<Course, List<Student>> enrollments = new LinkedHashMap<Course, List<Student>>();
+
+        /**
+         * appends the students and enrollments of the part that follows this one
+         * @param next part of the following rows
+         * @return this Part
+         */
+        private Part append(Part next) {
+            students.addAll(next.students);
+            for (Map.Entry<Course, List<Student>> e : next.enrollments.entrySet()) {
+                List<Student> registered = enrollments.get(e.getKey());
+                if (registered == null) {
+                    enrollments.put(e.getKey(), e.getValue());
+                } else {
+                    registered.addAll(e.getValue());
+                }
+            }
+            return this;
+        }
+    }
+
+    /**
+    * builds the students of a range of rows, splitting it in half until it is at most CHUNK_ROWS long
+    */
+    private static final class LoadTask extends RecursiveTask<Part> {
+        private static final long serialVersionUID = 1L;
+        private final List<String[]> rows;
+        private final int from;
+        private final int to;
+        private final CourseIndexMap courses;
+
+        /**
+         * @param rows rows of the student table
+         * @param from first row to build
+         * @param to last row to build (exclusive)
+         * @param courses Course objects by course ID and index
+         */
+        private LoadTask(List<String[]> rows, int from, int to, CourseIndexMap courses) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+            this.courses = courses;
+        }
+
+        /**
+         * @return students of the rows, in the order of the rows
+         */
+        @Override
+        protected Part compute() {
+            if (to - from <= CHUNK_ROWS) {
+                Part part = new Part();
+                for (int i = from; i < to; i++) {
+                    Student s = StudentDatabaseManager.createStudent(rows.get(i), courses);
+                    if (s == null) {
+                        continue;
+                    }
+                    part.students.add(s);
+                    for (Course c : s.coursesTaken) {
+                        part.enrollments.computeIfAbsent(c, k -> new ArrayList<Student>()).add(s);
+                    }
+                }
+                return part;
+            }
+            int middle = (from + to) >>> 1;
+            LoadTask right = new LoadTask(rows, middle, to, courses);
+            right.fork();
+            Part left = new LoadTask(rows, from, middle, courses).compute();
+            return left.append(right.join());
+        }
+    }
+}
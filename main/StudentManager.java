@@ -1,4 +1,5 @@
 
+import java.util.Iterator;
 import java.util.List;
 /**
  * <h1>
@@ -11,10 +12,6 @@ import java.util.List;
  * @since 2020-25-11
  */
 public class StudentManager {
-	/**
-	 * List of Student objects
-	 */
-	protected static List<Student> studentList=null;
 	/**
 	 * initialise instance of Student database manager
 	 */
@@ -27,13 +24,10 @@ public class StudentManager {
 	/**
 	 * constructor to create new Student Manager
 	 * instantiates new Course Manager as attribute
-	 * reads in list of Students from csv via Student Database manager
+	 * Students are not read here, StudentRepository builds each one the first time it is needed
 	 */
 	public StudentManager() {
 		sdm = StudentDatabaseManager.getInstance();
-		if(studentList==null){
-			studentList = StudentDatabaseManager.getAllStudents();
-		}
 		if(cm == null){
 			cm = new CourseManager();
 		}
@@ -53,6 +47,17 @@ public class StudentManager {
 	}
 
 
+	/**
+	 * gets every Course object by course ID and index, the same ones getCourse returns
+	 * @return CourseIndexMap of the courses
+	 */
+	public static CourseIndexMap getCourseMap(){
+		if(cm == null){
+			cm = new CourseManager();
+		}
+		return CourseManager.getCourseMap();
+	}
+
 	/**
 	 * gets student from matric number
 	 * @param matricNumber Matriculation number of student to retrieve
@@ -61,12 +66,11 @@ public class StudentManager {
 	 */
    public static Student retrieveStudent(String matricNumber) {
 	   
-		for(Student s : studentList) {
-			if(s.getMatricNo().equals(matricNumber)){
-				return s;
-			}
-		} System.out.println("Student does not exist.");
-		return null;
+		Student s = StudentRepository.byMatricNo(matricNumber);
+		if(s == null){
+			System.out.println("Student does not exist.");
+		}
+		return s;
 	}
 
 	/**
@@ -74,7 +78,7 @@ public class StudentManager {
 	 * @return true if student exists, false otherwise
 	 */
 	public boolean studentExists(String matricNumber){
-		return studentList.contains(retrieveStudent(matricNumber));
+		return retrieveStudent(matricNumber) != null;
 	}
 
 
@@ -88,31 +92,35 @@ public class StudentManager {
 	 * @param endTime end date to change to (should be in the form: 09:30)
 	 */
 	public void changeStudentAccess(String course, String startDate, String startTime, String endDate, String endTime){
-		sdm.changeStudentAccess(course, startDate, startTime, endDate, endTime);
+		if(!sdm.changeStudentAccess(course, startDate, startTime, endDate, endTime)){
+			System.out.println("Access period of students in " + course + " could not be changed.");
+			return;
+		}
 		System.out.println("Access period of students in " + course + " has been changed to " + startTime + ", " + startDate
                 + " till " + endTime + ", " + endDate);
 	}
 
 
 	/**
-	 * Prints basic information of all students in list
+	 * Prints basic information of all students in the student table
 	 * prints name, matriculation number, gender, nationality
+	 * the rows are streamed, no Student objects are built
 	 */
     public void printStudentInfo(){
 		System.out.println("Name: \t\t Matric Num\t Gender\t Nationality");
-		if (studentList != null){
-			for (Student student : studentList) {
-				System.out.println(student.getName() + "\t" + student.getMatricNo()  + " " 
-			+ student.getGender() + " " + student.getNationality());		
-			}
-		}else{ // if no students are registered yet
+		Iterator<String[]> records = StudentRepository.records().iterator();
+		if (!records.hasNext()){ // if no students are registered yet
 			System.out.println("no registered students yet");
 		}
+		while (records.hasNext()) {
+			String[] record = records.next();
+			System.out.println(StudentRepository.name(record) + "\t" + StudentRepository.matricNo(record) + " " 
+			+ record[3] + " " + record[4]);
+		}
 	}
 
 	/**
-	 * adds Student to this studentList
-	 * calls Student Database Manager to add Student into CSV
+	 * calls Student Database Manager to add Student into CSV, the Student object is built when it is first needed
 	 * prints all existing students
 	 * @param lastName last name of Student to add
 	 * @param firstName first name of Student to add
@@ -124,37 +132,32 @@ public class StudentManager {
 	 */
 	public void addStudent(String lastName, String firstName, String userName, String gender, String nationality, String courseOfStudy, String matricNo){
 		// add student, if success, is here
-		studentList.add(new Student(lastName, firstName, userName, gender, nationality, courseOfStudy, matricNo));
 		sdm.addStudent(lastName, firstName, userName, gender, nationality, courseOfStudy, matricNo);
 
 		System.out.println("Name: \t Matriculation Number:");
-		for (Student s : studentList) {
-			System.out.println(s.getName() + "\t" + s.getMatricNo());
-			
-		}
+		StudentRepository.records().forEach(record -> 
+			System.out.println(StudentRepository.name(record) + "\t" + StudentRepository.matricNo(record)));
 	}
 
 	/**
-	 * Traverse through student list to check if student exists
+	 * Looks up the username and matriculation number in the student table to check if student exists
 	 * @param userName unique username of Student to check
 	 * @param matricNo unique matriculation number of Student to check
 	 * @return true if student exists in system and false otherwise
 	 */
 	public boolean ifStudentExist(String userName, String matricNo){
-		for(Student s : studentList){
-			if(s.getUsername().equals(userName) || s.getMatricNo().equals(matricNo)){
-				System.out.println("Student already exists in database");
-				return true;
-			}
+		if(StudentRepository.exists(userName, matricNo)){
+			System.out.println("Student already exists in database");
+			return true;
 		}return false;
 	}
 
 	/**
-	 * Getting all students in list
-	 * @return studentList as a List of Student objects
+	 * Getting all students, builds every Student object that is not built yet
+	 * @return List of every Student object
 	 */
     public List<Student> getAllStudents(){
-        return studentList;
+        return StudentRepository.all();
     }
 
 	/**
@@ -162,34 +165,40 @@ public class StudentManager {
 	 * @return int size
 	 */
     public int getNumberOfStudents(){
-        return studentList.size();
+        return (int) StudentRepository.records().count();
 	}
 
 	/**
-	 * Traverse through student list to print name and matriculation number of students taking particular course
+	 * Streams the student table to print name and matriculation number of students taking particular course
 	 * @param courseID course ID of course to print students of
 	 */
 	public void printStudentsByCourse(String courseID){
 		System.out.println("Name: \t\tMatriculation Number:");
-		for (Student s : studentList) {
-			if(s.courseExists(courseID)){ // if student takes the course,
-				System.out.println(s.getName() + " \t" + s.getMatricNo());
-			}
-		}
+		StudentRepository.records()
+			.filter(record -> StudentRepository.takesCourse(record, courseID)) // if student takes the course,
+			.forEach(record -> System.out.println(StudentRepository.name(record) + " \t" + StudentRepository.matricNo(record)));
 	}
 
 	/**
 	 * calls Student Database Manager to add course to student from CSV
-	 * decrease vacancy of this Course by 1
+	 * decrease vacancy of this Course by 1, only if the course was saved
+	 * called before the Student object is changed, so it is only changed once the course is saved
 	 * @param s Student who is adding course
 	 * @param c Course to add
+	 * @param totalAU Total AU of the Student with the course
+	 * @return true if the course was saved
 	 */
-	public static void addCourse(Student s, Course c){ // to csv from student
+	public static boolean addCourse(Student s, Course c, int totalAU){ // to csv from student
 		if(cm == null){
 			cm = new CourseManager();
 		}
-		sdm.addCourse(s, c.getCourseID(), c.getCourseIndex());
+		StudentRepository.touch(s);
+		if(!sdm.addCourse(s, c.getCourseID(), c.getCourseIndex(), totalAU)){
+			System.out.println(c.getCourseID() + " could not be saved, please try again.");
+			return false;
+		}
 		cm.updateVacancy(c, "add");
+		return true;
 	}
 
 	/**
@@ -210,19 +219,27 @@ public class StudentManager {
 
 	/**
 	 * calls Student Database Manager to remove course in student from CSV
-	 * increase vacancy of this Course by 1
+	 * increase vacancy of this Course by 1, only if the drop was saved
+	 * called before the Student object is changed, so it is only changed once the drop is saved
 	 * @param s Student whose course to drop
 	 * @param c Course to drop
+	 * @param totalAU Total AU of the Student without the course
+	 * @return true if the drop was saved
 	 */
-	public  static void dropCourse(Student s, Course c){ // to csv from student
+	public  static boolean dropCourse(Student s, Course c, int totalAU){ // to csv from student
 		if(cm == null){
 			cm = new CourseManager();
 		}
 		if(sdm == null){
 			sdm = StudentDatabaseManager.getInstance();
 		}
-		sdm.dropCourse(s, c.getCourseID());
+		StudentRepository.touch(s);
+		if(!sdm.dropCourse(s, c.getCourseID(), totalAU)){
+			System.out.println(c.getCourseID() + " could not be dropped, please try again.");
+			return false;
+		}
 		cm.updateVacancy(c, "drop");
+		return true;
 	}
 
 	/**
@@ -240,41 +257,40 @@ public class StudentManager {
 	}
 
 	/**
-	 * Traverse through student list to print name and matriculation number of students taking particular index
+	 * Streams the student table to print name and matriculation number of students taking particular index
 	 * @param courseID course index to print students from
 	 * @param courseIndex course ID to print students from
 	 */
 	public static void printStudentByIndex(String courseID, int courseIndex){
 		System.out.println("Name: \t\tMatriculation Number:");
-		for (Student s : studentList) {
-			if(s.courseIndexExists(courseIndex)){
-				System.out.println(s.getName() + " \t" + s.getMatricNo());
-			}
-		}
+		StudentRepository.records()
+			.filter(record -> StudentRepository.takesIndex(record, courseIndex))
+			.forEach(record -> System.out.println(StudentRepository.name(record) + " \t" + StudentRepository.matricNo(record)));
 	}
 
 	/**
 	 * For swapping of index of Student with a peer
 	 * verifies that both student and peer are taking course index as specified
-	 * verifies login of peer from password keyed in in StudentApp
+	 * verifies the session token of the peer from loginPeer is for this swap, without deriving the peer's password again
 	 * prints lessons of both students
 	 * @param s Student doing the swapping of index
 	 * @param peerMatricNum Matriculation number of peer
 	 * @param peerCourseIndex course index of peer
 	 * @param myCourseIndex course index of this Student
 	 * @param courseID course ID of this course
-	 * @param peerPassword password of peer
+	 * @param peerToken session token of peer for this swap, from loginPeer
 	 * @return peer as a Student object
 	 * 			, otherwise show error message and return null if peer or student is not taking specifed course index
 	 */
-	public Student swapCourseIndex(Student s, String peerMatricNum, int peerCourseIndex, int myCourseIndex, String courseID, String peerPassword) {
+	public Student swapCourseIndex(Student s, String peerMatricNum, int peerCourseIndex, int myCourseIndex, String courseID, String peerToken) {
+		StudentRepository.touch(s);
 		Student peer = retrieveStudent(peerMatricNum);
 
 		if(peer!=null && peer.courseIndexExists(peerCourseIndex)){
 			Course peerCourse = peer.getCourseUsingIndex(peerCourseIndex);
 			Course myCourse = s.getCourseUsingIndex(myCourseIndex);
 			if(peerCourse != null && myCourse != null){
-				if(Login.verifyLogin(peer.getUsername(), peerPassword, "student")){
+				if(SessionStore.isValid(peerToken, peer.getUsername(), "student", swapScope(s, myCourse, myCourseIndex, peerCourseIndex))){
 					System.out.println("lessons for my course index " + myCourseIndex + ": \n");
 					myCourse.printSchedule(myCourseIndex);
 					System.out.println();
@@ -282,30 +298,82 @@ public class StudentManager {
 					peerCourse.printSchedule(peerCourseIndex);
 					return peer;
 				}
+				System.out.println("peer is not logged in.");
+				return null;
 			}
 		}System.out.println("could not find the course in the matric number specified.");
 		return null;
 	}
 
+	/**
+	 * Logs in the peer of an index swap with the password keyed in in StudentApp, as the peer's consent to this one swap
+	 * the token is only valid for this swap (student, course and both indexes) and is used up by confirmSwap
+	 * @param s Student doing the swapping of index
+	 * @param peerMatricNum Matriculation number of peer
+	 * @param peerPassword password of peer
+	 * @param myCourseIndex course index of this Student
+	 * @param peerCourseIndex course index of peer
+	 * @return session token of peer for swapCourseIndex and confirmSwap,
+	 * 			null if the peer does not exist, the student is not taking the course index or the password is wrong
+	 */
+	public String loginPeer(Student s, String peerMatricNum, String peerPassword, int myCourseIndex, int peerCourseIndex) {
+		Student peer = StudentRepository.byMatricNo(peerMatricNum);
+		Course myCourse = s.getCourseUsingIndex(myCourseIndex);
+		if(peer == null || myCourse == null){
+			return null;
+		}
+		return SessionStore.login(peer.getUsername(), peerPassword, "student", swapScope(s, myCourse, myCourseIndex, peerCourseIndex));
+	}
+
+	/**
+	 * Ends the session of a peer for a swap, if confirmSwap did not use it up
+	 * @param peerToken session token of peer from loginPeer, may be null
+	 */
+	public void cancelSwap(String peerToken) {
+		SessionStore.invalidate(peerToken);
+	}
+
+	/**
+	 * @param s Student doing the swapping of index
+	 * @param myCourse course to swap
+	 * @param myCourseIndex course index of this Student
+	 * @param peerCourseIndex course index of peer
+	 * @return scope of the peer's session for one swap eg. "swap,U2000001C,CZ2002,10002,10003"
+	 */
+	private static String swapScope(Student s, Course myCourse, int myCourseIndex, int peerCourseIndex) {
+		return "swap," + s.getMatricNo() + "," + myCourse.getCourseID() + "," + myCourseIndex + "," + peerCourseIndex;
+	}
+
 	/**
 	 * Confirms swapping of indexes
-	 * replaces the relevant course indexes in both student and peer objects
-	 * swap the 2 students in the course
-	 * calls Student Database Manager to perform swapping in CSV
+	 * uses up the peer's session token for this swap, so the peer has to log in again for another swap
+	 * calls Student Database Manager to perform swapping in CSV first,
+	 * only if it is saved the relevant course indexes are replaced in both student and peer objects
+	 * and the 2 students are swapped in the course, so the objects never differ from the CSV
 	 * @param s Student doing the swapping of index
 	 * @param peer peer Student to swap with
 	 * @param myCourseIndex course index of this Student
 	 * @param peerCourseIndex course index of peer
+	 * @param peerToken session token of peer for this swap, from loginPeer
+	 * @return true if the swap was saved and done
 	 */
-	public void confirmSwap(Student s, Student peer, int myCourseIndex, int peerCourseIndex){
+	public boolean confirmSwap(Student s, Student peer, int myCourseIndex, int peerCourseIndex, String peerToken){
 		Course peerCourse = peer.getCourseUsingIndex(peerCourseIndex);
 		Course myCourse = s.getCourseUsingIndex(myCourseIndex);
+		if(myCourse == null || !SessionStore.consume(peerToken, peer.getUsername(), "student", swapScope(s, myCourse, myCourseIndex, peerCourseIndex))){
+			System.out.println("peer has not agreed to this swap.");
+			return false;
+		}
+		if(!sdm.swapCourseIndex(s.getMatricNo(), peer.getMatricNo(), myCourseIndex, peerCourseIndex, myCourse.getCourseID())){
+			System.out.println("swap could not be saved, nothing was changed");
+			return false;
+		}
 		peer.replaceCourse(peerCourse, myCourse);
 		s.replaceCourse(myCourse, peerCourse);
 		peerCourse.swapStudents(peer, s);
 		myCourse.swapStudents(s, peer);
-		sdm.swapCourseIndex(s.getMatricNo(), peer.getMatricNo(), myCourseIndex, peerCourseIndex, myCourse.getCourseID());
 		System.out.println("swap completed");
+		return true;
 	}
 
 	/**
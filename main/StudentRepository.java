@@ -0,0 +1,340 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+* <h1>StudentRepository</h1>
+* Student objects built on demand from the student table, instead of building every student at startup.
+* <p>
+* A Student (courses, timetable, notifier) is built from its row the first time it is asked for by username or
+* matriculation number, and the same object is returned until it is evicted. Students that were not used for
+* IDLE_MILLIS are evicted and removed from the registered students of their courses; the next request builds
+* them again from their row, which always holds their latest enrollments.
+* A student who is logged in is pinned (Student.run pins it at login and releases it at logout) and is never evicted,
+* however long the session stays idle, so the session never works on an object the repository no longer holds.
+* If the snapshot is current its students are already built and linked to the courses, they are taken over as they are.
+* <p>
+* Operations over every student (eg. printing all students) use records(), which streams the rows of the table
+* without building Student objects.
+* the idle time can be changed with the system property stars.student.idle.ms
+* @version 1.0
+* @since   2020-25-11
+*/
+public class StudentRepository {
+    /**
+    * students not used for this long are evicted
+    */
+    static final long IDLE_MILLIS = Long.getLong("stars.student.idle.ms", 30 * 60 * 1000L);
+    /**
+    * idle students are looked for at most this often
+    */
+    private static final long SWEEP_MILLIS = Math.min(IDLE_MILLIS, 60 * 1000L);
+    /**
+    * column of the username in the student table
+    */
+    private static final int USERNAME = 2;
+    /**
+    * column of the matriculation number in the student table
+    */
+    private static final int MATRIC = 6;
+    /**
+    * first column of the course slots in the student table, course ID and index alternate up to Total AU
+    */
+    private static final int FIRST_SLOT = 11;
+    /**
+    * column of the total AU in the student table
+    */
+    private static final int TOTAL_AU = 25;
+
+    /**
+    * students that are built, by matriculation number
+    */
+    private static final Map<String, Entry> byMatric = new ConcurrentHashMap<String, Entry>();
+    /**
+    * matriculation number of the students that are built, by username
+    */
+    private static final Map<String, String> matricByUsername = new ConcurrentHashMap<String, String>();
+    /**
+    * set once the students of the snapshot were taken over
+    */
+    private static boolean seeded = false;
+    /**
+    * time idle students were last looked for
+    */
+    private static long lastSweep = System.currentTimeMillis();
+
+    /**
+     * gets a student by matriculation number, building it the first time
+     * @param matricNo matriculation number eg. "U2000001C"
+     * @return Student object, null if there is no such student
+     */
+    public static Student byMatricNo(String matricNo) {
+        Entry e = byMatric.get(matricNo);
+        if (e != null) {
+            return e.use();
+        }
+        return materialize(table().find(MATRIC, matricNo));
+    }
+
+    /**
+     * gets a student by username, building it the first time
+     * @param userName username eg. "DON001"
+     * @return Student object, null if there is no such student
+     */
+    public static Student byUsername(String userName) {
+        String matricNo = matricByUsername.get(userName);
+        Entry e = matricNo == null ? null : byMatric.get(matricNo);
+        if (e != null) {
+            return e.use();
+        }
+        return materialize(table().find(USERNAME, userName));
+    }
+
+    /**
+     * marks a student as used, so it is not evicted while a session works with it
+     * @param s Student that is used
+     */
+    public static void touch(Student s) {
+        Entry e = byMatric.get(s.getMatricNo());
+        if (e != null && e.student == s) {
+            e.use();
+        }
+    }
+
+    /**
+     * pins a student for the session of a login, it is not evicted until every pin is released
+     * @param s Student that logged in
+     */
+    public static synchronized void pin(Student s) {
+        Entry e = byMatric.get(s.getMatricNo());
+        if (e == null) { // evicted before the session started, it is registered again as it is
+            for (Course c : s.coursesTaken) {
+                c.addStudent(s);
+            }
+            e = put(s);
+        }
+        if (e.student == s) {
+            e.pins++;
+            e.use();
+        }
+    }
+
+    /**
+     * releases a pin of pin(), the student is evicted again once it is idle
+     * @param s Student that logged out
+     */
+    public static synchronized void release(Student s) {
+        Entry e = byMatric.get(s.getMatricNo());
+        if (e != null && e.student == s && e.pins > 0) {
+            e.pins--;
+            e.use(); // idle from the logout on
+        }
+    }
+
+    /**
+     * checks if a student exists without building it
+     * @param userName username of the student
+     * @param matricNo matriculation number of the student
+     * @return true if a student has the username or the matriculation number
+     */
+    public static boolean exists(String userName, String matricNo) {
+        return table().find(USERNAME, userName) != null || table().find(MATRIC, matricNo) != null;
+    }
+
+    /**
+     * streams the rows of every student, without building Student objects
+     * @return rows of the student table, without the header
+     */
+    public static Stream<String[]> records() {
+        return table().rows().stream().skip(1).filter(row -> row.length > MATRIC);
+    }
+
+    /**
+     * @param record row of the student table
+     * @return first and last name of the student, as Student.getName
+     */
+    public static String name(String[] record) {
+        return record[1] + " " + record[0];
+    }
+
+    /**
+     * @param record row of the student table
+     * @return matriculation number of the student
+     */
+    public static String matricNo(String[] record) {
+        return record[MATRIC];
+    }
+
+    /**
+     * @param record row of the student table
+     * @param courseID course ID eg. "CZ2002"
+     * @return true if the student takes the course, as Student.courseExists
+     */
+    public static boolean takesCourse(String[] record, String courseID) {
+        for (int i = FIRST_SLOT; i < TOTAL_AU && i < record.length; i += 2) {
+            if (record[i].equals(courseID)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param record row of the student table
+     * @param courseIndex course index eg. 10002
+     * @return true if the student takes the course index, as Student.courseIndexExists
+     */
+    public static boolean takesIndex(String[] record, int courseIndex) {
+        String index = Integer.toString(courseIndex);
+        for (int i = FIRST_SLOT + 1; i < TOTAL_AU && i < record.length; i += 2) {
+            if (record[i].equals(index)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * builds every student that is not built yet, in parallel with StudentLoader
+     * only for operations that need the Student objects of everyone, records() is enough for most
+     * @return List of every Student object, in the order of the table
+     */
+    public static synchronized List<Student> all() {
+        seed();
+        List<String[]> rows = table().rows();
+        List<String[]> missing = new ArrayList<String[]>();
+        missing.add(new String[0]); // StudentLoader skips the header
+        for (int i = 1; i < rows.size(); i++) {
+            if (rows.get(i).length > MATRIC && !byMatric.containsKey(rows.get(i)[MATRIC])) {
+                missing.add(rows.get(i));
+            }
+        }
+        for (Student s : StudentLoader.load(missing, StudentManager.getCourseMap())) {
+            put(s);
+        }
+        List<Student> students = new ArrayList<Student>(rows.size());
+        for (int i = 1; i < rows.size(); i++) {
+            Entry e = rows.get(i).length > MATRIC ? byMatric.get(rows.get(i)[MATRIC]) : null;
+            if (e != null) {
+                students.add(e.use());
+            }
+        }
+        return students;
+    }
+
+    /**
+     * evicts every student that was not used for IDLE_MILLIS and is not pinned
+     * @return number of students evicted
+     */
+    public static synchronized int evictIdle() {
+        long now = System.currentTimeMillis();
+        lastSweep = now;
+        int evicted = 0;
+        for (Iterator<Entry> it = byMatric.values().iterator(); it.hasNext();) {
+            Entry e = it.next();
+            if (e.pins == 0 && now - e.lastUsed >= IDLE_MILLIS) {
+                it.remove();
+                matricByUsername.remove(e.student.getUsername(), e.student.getMatricNo());
+                for (Course c : e.student.coursesTaken) {
+                    c.removeStudent(e.student);
+                }
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * @return number of students that are built
+     */
+    public static int size() {
+        return byMatric.size();
+    }
+
+    /**
+     * builds the student of a row, or returns it if it was built in the meantime
+     * @param row row of the student table, null if the student was not found
+     * @return Student object, null if there is none
+     */
+    private static synchronized Student materialize(String[] row) {
+        seed();
+        if (row == null || row.length <= MATRIC) {
+            return null;
+        }
+        Entry e = byMatric.get(row[MATRIC]);
+        if (e == null) {
+            if (System.currentTimeMillis() - lastSweep >= SWEEP_MILLIS) {
+                evictIdle();
+            }
+            Student s = StudentDatabaseManager.createStudent(row, StudentManager.getCourseMap());
+            for (Course c : s.coursesTaken) {
+                c.addStudent(s);
+            }
+            e = put(s);
+        }
+        return e.use();
+    }
+
+    /**
+     * takes over the students of the snapshot the first time, they are already registered in their courses
+     * also makes sure the enrollment journal is replayed before any row is read
+     */
+    private static void seed() {
+        if (seeded) {
+            return;
+        }
+        seeded = true;
+        StudentDatabaseManager.getInstance();
+        List<Student> fromSnapshot = Snapshot.students();
+        if (fromSnapshot != null) {
+            for (Student s : fromSnapshot) {
+                put(s);
+            }
+        }
+    }
+
+    /**
+     * @param s Student that was built
+     * @return its entry
+     */
+    private static Entry put(Student s) {
+        Entry e = new Entry(s);
+        byMatric.put(s.getMatricNo(), e);
+        matricByUsername.put(s.getUsername(), s.getMatricNo());
+        return e;
+    }
+
+    /**
+     * @return the student table
+     */
+    private static StorageEngine table() {
+        return StorageEngine.of(StudentDatabaseManager.STUDENTFILE);
+    }
+
+    /**
+    * a built student, when it was last used and how many sessions pinned it
+    */
+    private static final class Entry {
+        private final Student student;
+        private volatile long lastUsed = System.currentTimeMillis();
+        /**
+        * sessions the student is logged in to, guarded by the StudentRepository class
+        */
+        private int pins = 0;
+
+        private Entry(Student student) {
+            this.student = student;
+        }
+
+        /**
+         * @return the student, marked as used now
+         */
+        private Student use() {
+            lastUsed = System.currentTimeMillis();
+            return student;
+        }
+    }
+}
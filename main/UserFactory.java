@@ -30,7 +30,7 @@ public class UserFactory{
       /** 
        * file names are in all caps for easy differentiation
       */
-      this.fileName = userDomain.toUpperCase().concat(".csv");
+      this.fileName = userDomain.equals("student") ? StudentDatabaseManager.STUDENTFILE : userDomain.toUpperCase().concat(".csv");
    }
     
     /** 
@@ -1,5 +1,5 @@
+import java.util.Deque;
 import java.util.LinkedList;
-import java.util.Queue;
 
 /**
  * <h1>WaitList Entity Class</h1>
@@ -22,7 +22,7 @@ public class WaitList {
 	/**
 	 * Queue containing all the waitlisted Students
 	 */
-	private Queue<Student> waitListQ = new LinkedList<Student>();
+	private Deque<Student> waitListQ = new LinkedList<Student>();
 	
 	public WaitList(Course c, int vacancy) {
 		this.c = c;
@@ -53,11 +53,15 @@ public class WaitList {
 	
 	/** 
 	 * Register Student s into the Course, updates both Course and Student objects
+	 * if the registration could not be saved, s stays first in the waitlist and nothing is changed
 	 * @param s Student to be registered
 	 */
 	private void registerStudent(Student s) {
-		c.addStudent(s);
-		s.confirmRegistration(this.c);
+		if (s.confirmRegistration(this.c)) {
+			c.addStudent(s);
+		} else {
+			waitListQ.addFirst(s);
+		}
 	}
 
 	